@@ -1,6 +1,7 @@
 plugins {
     kotlin("jvm") version "1.9.0"
     application
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 repositories {
@@ -13,12 +14,87 @@ dependencies {
     implementation("org.ow2.asm:asm-commons:9.5")
     implementation("org.ow2.asm:asm-util:9.5")
     implementation("com.formdev:flatlaf:3.4")
+
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 java {
     toolchain.languageVersion.set(JavaLanguageVersion.of(17))
 }
 
+tasks.test {
+    useJUnitPlatform()
+    // JarRoundTripTest пишет zip64-архивы на 70 000 записей
+    maxHeapSize = "1g"
+}
+
 application {
     mainClass.set("com.myobfuscator.Main")
 }
+
+// Шаблоны классов, которые обфускатор вставляет в выходной JAR (/templates/*.class),
+// собираются из тех же исходников, чтобы не расходиться с трансформерами.
+// Компилируются отдельно под Java 8: они попадают в JAR'ы, которые запускаются на любой JVM от 8
+val compileTemplates by tasks.registering(JavaCompile::class) {
+    source = fileTree("src/main/java") {
+        include(
+            "com/myobfuscator/util/StringDecryptor.java",
+            "com/myobfuscator/util/AntiDebugGuard.java",
+            "com/myobfuscator/security/SystemBindingUtil.java",
+            "com/myobfuscator/security/PasswordUtil.java"
+        )
+    }
+    classpath = files()
+    options.release.set(8)
+    options.encoding = "UTF-8"
+    destinationDirectory.set(layout.buildDirectory.dir("classes/java/templates"))
+}
+
+val templates by tasks.registering(Copy::class) {
+    from(compileTemplates.flatMap { it.destinationDirectory }) {
+        eachFile { path = if (name == "StringDecryptor.class") "StringDecryptorTemplate.class" else name }
+    }
+    includeEmptyDirs = false
+    into(layout.buildDirectory.dir("generated/templates/templates"))
+}
+
+sourceSets.main {
+    resources.srcDir(templates.map { layout.buildDirectory.dir("generated/templates").get() })
+}
+
+// Инструменты для нагрузочных прогонов (src/tools): в JAR обфускатора не попадают,
+// видят классы main и сами видны бенчмаркам
+val tools by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += output + compileClasspath + sourceSets.main.get().runtimeClasspath
+}
+
+dependencies {
+    "jmhImplementation"(tools.output)
+}
+
+// Синтетический JAR для нагрузочных прогонов:
+// ./gradlew syntheticJar -PsyntheticArgs="build/synthetic.jar --classes 50000"
+tasks.register<JavaExec>("syntheticJar") {
+    classpath = tools.runtimeClasspath
+    mainClass.set("com.myobfuscator.tools.SyntheticJarGenerator")
+    args(((findProperty("syntheticArgs") as String?) ?: "build/synthetic.jar").split(" "))
+}
+
+// Накладные расходы обфускации в рантайме:
+// ./gradlew runtimeOverhead -PoverheadArgs="build/synthetic.jar --format csv"
+tasks.register<JavaExec>("runtimeOverhead") {
+    classpath = tools.runtimeClasspath
+    mainClass.set("com.myobfuscator.tools.RuntimeOverheadHarness")
+    args(((findProperty("overheadArgs") as String?) ?: "build/synthetic.jar").split(" "))
+}
+
+// Бенчмарки (src/jmh): ./gradlew jmh, отдельный класс — ./gradlew jmh -Pjmh.includes=TransformerBenchmark
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
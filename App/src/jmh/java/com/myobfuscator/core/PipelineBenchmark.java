@@ -0,0 +1,69 @@
+package com.myobfuscator.core;
+
+import com.myobfuscator.tools.SyntheticJarGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Полный ObfuscatorCore.run() на синтетических JAR'ах разного размера. Один прогон
+ * большого JAR'а — секунды, поэтому режим SingleShotTime: каждая итерация — отдельный
+ * прогон со свежими трансформерами. Аллокации на прогон — через -prof gc
+ * (gc.alloc.rate.norm), он включён в build.gradle.kts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PipelineBenchmark {
+    @Param({"1000", "10000", "50000"})
+    public int classes;
+
+    /** Набор как в ObfuscatorPanel, через запятую (имена — TransformerBenchmark.create) */
+    @Param({"rename,strings,cf,anti"})
+    public String chain;
+
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path dir;
+    private Path in;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("obf-bench");
+        in = dir.resolve("in.jar");
+        new SyntheticJarGenerator(classes).write(in);
+    }
+
+    @Benchmark
+    public Path run() throws Exception {
+        List<ITransformer> transformers = new ArrayList<>();
+        for (String name : chain.split(",")) transformers.add(TransformerBenchmark.create(name));
+        Path out = dir.resolve("out.jar");
+        ObfuscationContext ctx = new ObfuscationContext(in, out, transformers, 2);
+        ctx.setSeed(42);
+        ctx.setParallelism(threads);
+        ctx.setStreaming(streaming);
+        new ObfuscatorCore(ctx).run();
+        return out;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.myobfuscator.core;
+
+import com.myobfuscator.io.JarSource;
+import com.myobfuscator.tools.SyntheticJarGenerator;
+import com.myobfuscator.transformer.*;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * ITransformer.transform по классам синтетического JAR'а. Одна операция — проход
+ * трансформера по всем classes классам; перед каждой классы заново читаются из байтов
+ * (ClassReader в замер не входит), потому что transform их меняет.
+ * Контекст собирается так же, как в ObfuscatorCore.run(): открытый JAR и иерархия.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformerBenchmark {
+    @Param({"rename", "strings", "condy", "table", "cf", "anti", "noop"})
+    public String transformer;
+
+    @Param({"1000"})
+    public int classes;
+
+    private Path dir;
+    private JarSource jar;
+    private ClassHierarchy hierarchy;
+    private ITransformer target;
+    private final List<byte[]> bytes = new ArrayList<>();
+    private final List<ClassNode> nodes = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("obf-bench");
+        Path in = dir.resolve("in.jar");
+        new SyntheticJarGenerator(classes).write(in);
+
+        target = create(transformer);
+        ObfuscationContext ctx = new ObfuscationContext(in, dir.resolve("out.jar"),
+                new ArrayList<>(List.of(target)), 2);
+        ctx.setSeed(42);
+        jar = JarSource.open(in);
+        hierarchy = ClassHierarchy.build(jar, List.of());
+        ctx.setJar(jar);
+        ctx.setHierarchy(hierarchy);
+        target.init(ctx);
+
+        for (JarSource.Entry entry : jar.entries()) {
+            if (entry.isClass()) bytes.add(jar.read(entry));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void readClasses() {
+        nodes.clear();
+        for (byte[] b : bytes) {
+            ClassNode cn = new ClassNode();
+            // как ObfuscatorCore.readClass
+            new ClassReader(b).accept(cn, ClassReader.EXPAND_FRAMES | ClassReader.SKIP_DEBUG);
+            nodes.add(cn);
+        }
+    }
+
+    @Benchmark
+    public List<ClassNode> transform() {
+        for (ClassNode cn : nodes) {
+            target.transform(cn);
+        }
+        return nodes;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        hierarchy.close();
+        jar.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    static ITransformer create(String name) {
+        return switch (name) {
+            case "rename" -> new RenamerTransformer();
+            case "strings" -> new StringEncryptorTransformer(StringEncryptorTransformer.Mode.CALL);
+            case "condy" -> new StringEncryptorTransformer(StringEncryptorTransformer.Mode.CONSTANT_DYNAMIC);
+            case "table" -> new StringEncryptorTransformer(StringEncryptorTransformer.Mode.CLASS_TABLE);
+            case "cf" -> new ControlFlowTransformer();
+            case "anti" -> new AntiDebugTransformer();
+            case "noop" -> new NoOpTransformer();
+            default -> throw new IllegalArgumentException("unknown transformer " + name);
+        };
+    }
+}
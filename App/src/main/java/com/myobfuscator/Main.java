@@ -1,10 +1,23 @@
 package com.myobfuscator;
 
+import com.myobfuscator.cli.BatchRunner;
+import com.myobfuscator.cli.Daemon;
 import com.myobfuscator.security.SystemBindingUtil;
 import com.myobfuscator.ui.GuiLauncher;
 
+import java.io.PrintStream;
+
 public class Main {
     public static void main(String[] args) {
+        if (args.length > 0) {
+            // CLI: без AWT и без хеша системы (он запускает внешние процессы)
+            System.setProperty("java.awt.headless", "true");
+            PrintStream report = System.out;
+            System.setOut(System.err);  // логи трансформеров — в stderr, в stdout только отчёт
+            System.exit(Daemon.isCommand(args[0])
+                    ? Daemon.main(args, report, System.err)
+                    : BatchRunner.main(args, report, System.err));
+        }
         System.out.println("CURRENT_HASH=" + SystemBindingUtil.computeSystemHash());
         GuiLauncher.launch();
     }
@@ -0,0 +1,210 @@
+package com.myobfuscator.cli;
+
+import com.myobfuscator.core.MethodProfile;
+import com.myobfuscator.core.ObfuscationContext;
+import com.myobfuscator.core.ObfuscatorCore;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Пакетный прогон без GUI: все JAR'ы обрабатываются в одной JVM пулом из
+ * getParallelJobs() потоков, поэтому загрузка классов, JIT и кэш JDK-иерархии
+ * (ClassHierarchy) оплачиваются один раз на пакет. Каждый JAR получает свой
+ * контекст и свои экземпляры трансформеров.
+ *
+ * Отчёт о времени — по строке на JAR и итог, в JSON Lines или CSV.
+ */
+public final class BatchRunner {
+    /** Результат одного задания; error == null — успешно */
+    public record JobResult(CliOptions.Job job, long millis, long inputBytes, long outputBytes, String error) {
+        boolean ok() { return error == null; }
+    }
+
+    private final CliOptions options;
+    private final PrintStream err;
+
+    public BatchRunner(CliOptions options) {
+        this(options, System.err);
+    }
+
+    /** err — куда печатать стек ошибки задания (у демона — клиенту) */
+    public BatchRunner(CliOptions options, PrintStream err) {
+        this.options = options;
+        this.err = err;
+    }
+
+    /** Прогоняет все задания; порядок результатов совпадает с порядком заданий */
+    public List<JobResult> run() throws Exception {
+        MethodProfile profile = options.loadProfile();
+        List<CliOptions.Job> jobs = options.getJobs();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(options.getParallelJobs(), jobs.size()));
+        try {
+            List<Future<JobResult>> futures = new ArrayList<>();
+            for (CliOptions.Job job : jobs) {
+                futures.add(pool.submit(() -> runJob(job, profile)));
+            }
+            List<JobResult> results = new ArrayList<>();
+            for (Future<JobResult> f : futures) results.add(f.get());
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private JobResult runJob(CliOptions.Job job, MethodProfile profile) {
+        long start = System.nanoTime();
+        try {
+            ObfuscationContext ctx = new ObfuscationContext(job.input().toAbsolutePath(),
+                    job.output().toAbsolutePath(), options.transformers(), options.getDeadBranches());
+            ctx.setParallelism(options.getThreads());
+            ctx.setStreaming(options.isStreaming());
+            ctx.setRenameMembers(options.isRenameMembers());
+            ctx.setLibraries(options.getLibraries());
+            ctx.setProfile(profile);
+            if (options.getSeed() != null) ctx.setSeed(options.getSeed());
+            if (options.getCacheDir() != null) ctx.setCacheDir(cacheDirFor(job));
+            if (options.getMetricsDir() != null) {
+                ctx.setMetricsReport(options.getMetricsDir().resolve(
+                        job.output().getFileName() + ".metrics." + options.getMetricsFormat()));
+            }
+
+            new ObfuscatorCore(ctx).run();
+            return new JobResult(job, elapsed(start), Files.size(job.input()), Files.size(job.output()), null);
+        } catch (Exception e) {
+            e.printStackTrace(err);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            return new JobResult(job, elapsed(start), size(job.input()), -1, error);
+        }
+    }
+
+    /** У каждого JAR'а свой кэш: иначе задания делили бы seed.txt и ключи BuildCache */
+    private Path cacheDirFor(CliOptions.Job job) {
+        String path = job.input().toAbsolutePath().normalize().toString();
+        return options.getCacheDir().resolve(job.input().getFileName() + "-" + Integer.toHexString(path.hashCode()));
+    }
+
+    private static long elapsed(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /** Печатает отчёт в формате options.getFormat(); totalMillis — время всего пакета */
+    public void report(List<JobResult> results, long totalMillis, PrintStream out) {
+        int failed = 0;
+        for (JobResult r : results) if (!r.ok()) failed++;
+
+        if (options.getFormat().equals("csv")) {
+            out.println("input,output,status,millis,input_bytes,output_bytes,error");
+            for (JobResult r : results) {
+                out.println(csv(r.job().input().toString()) + "," + csv(r.job().output().toString()) + ","
+                        + (r.ok() ? "ok" : "error") + "," + r.millis() + "," + r.inputBytes() + ","
+                        + r.outputBytes() + "," + (r.ok() ? "" : csv(r.error())));
+            }
+            out.println("TOTAL,," + (failed == 0 ? "ok" : "error") + "," + totalMillis + ",,,");
+            return;
+        }
+        for (JobResult r : results) {
+            out.println("{\"input\":" + json(r.job().input().toString())
+                    + ",\"output\":" + json(r.job().output().toString())
+                    + ",\"status\":\"" + (r.ok() ? "ok" : "error") + "\""
+                    + ",\"millis\":" + r.millis()
+                    + ",\"inputBytes\":" + r.inputBytes()
+                    + ",\"outputBytes\":" + r.outputBytes()
+                    + (r.ok() ? "" : ",\"error\":" + json(r.error())) + "}");
+        }
+        out.println("{\"total\":true,\"jobs\":" + results.size() + ",\"failed\":" + failed
+                + ",\"millis\":" + totalMillis + ",\"parallelJobs\":" + options.getParallelJobs()
+                + ",\"threads\":" + options.getThreads() + "}");
+    }
+
+    private static String csv(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Точка входа CLI. Логи трансформеров идут в stderr, stdout остаётся
+     * машиночитаемым отчётом. Код выхода: 0 — всё успешно, 1 — есть ошибки, 2 — неверные аргументы.
+     */
+    public static int main(String[] args, PrintStream out, PrintStream err) {
+        return main(args, Paths.get(""), out, err);
+    }
+
+    /** То же с относительными путями от workDir — так задания выполняет демон */
+    public static int main(String[] args, Path workDir, PrintStream out, PrintStream err) {
+        CliOptions options;
+        try {
+            options = CliOptions.parse(args, workDir);
+        } catch (IllegalArgumentException | IOException e) {
+            err.println("error: " + e.getMessage());
+            err.println(CliOptions.USAGE);
+            return 2;
+        }
+        if (options.isHelp()) {
+            out.println(CliOptions.USAGE);
+            return 0;
+        }
+
+        BatchRunner runner = new BatchRunner(options, err);
+        long start = System.nanoTime();
+        List<JobResult> results;
+        try {
+            results = runner.run();
+        } catch (Exception e) {
+            e.printStackTrace(err);
+            return 1;
+        }
+        long total = elapsed(start);
+
+        try {
+            if (options.getReport() != null) {
+                try (PrintStream file = new PrintStream(Files.newOutputStream(options.getReport()),
+                        true, StandardCharsets.UTF_8)) {
+                    runner.report(results, total, file);
+                }
+            } else {
+                runner.report(results, total, out);
+            }
+        } catch (IOException e) {
+            err.println("error: " + e.getMessage());
+            return 1;
+        }
+        return results.stream().allMatch(JobResult::ok) ? 0 : 1;
+    }
+}
@@ -0,0 +1,235 @@
+package com.myobfuscator.cli;
+
+import com.myobfuscator.core.ITransformer;
+import com.myobfuscator.core.MethodProfile;
+import com.myobfuscator.transformer.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Параметры командной строки. Набор трансформеров — тот же, что в GUI, и в том же
+ * порядке; экземпляры создаются заново на каждый JAR (transformers()), потому что
+ * трансформеры хранят состояние прогона.
+ */
+public final class CliOptions {
+    static final String USAGE = String.join("\n",
+            "usage: obfuscator [options] in.jar[=out.jar] ...",
+            "",
+            "  -o, --out-dir DIR        куда писать JAR'ы без явного out.jar (по умолчанию <in>-obf.jar рядом)",
+            "  --batch FILE             список заданий: строки 'in.jar [out.jar]', '#' — комментарий",
+            "  -j, --jobs N             сколько JAR'ов обрабатывать одновременно (1)",
+            "  -t, --threads N          потоков на трансформацию одного JAR'а (1)",
+            "  --rename                 переименовать классы",
+            "  --no-members             не переименовывать методы и поля",
+            "  --strings[=MODE]         шифровать строки: call (по умолчанию), condy, table",
+            "  --cf[=N]                 непрозрачные предикаты, N на метод (2)",
+            "  --anti[=SECONDS]         anti-debug, с перепроверкой раз в SECONDS (0 — один раз)",
+            "  --password               вставить PasswordUtil",
+            "  --binding                привязка к машине (SystemBindingUtil)",
+            "  --lib PATH               библиотека для иерархии классов; можно повторять и через '"
+                    + File.pathSeparator + "'",
+            "  --seed N                 фиксированный seed",
+            "  --profile FILE           профиль горячих методов (.jfr или CSV)",
+            "  --streaming              потоковый режим",
+            "  --cache DIR              инкрементальный кэш (подкаталог на каждый JAR)",
+            "  --format json|csv        формат отчёта о времени в stdout (json)",
+            "  --report FILE            писать отчёт в файл, а не в stdout",
+            "  --metrics DIR            метрики фаз и трансформеров: DIR/<out.jar>.metrics.json",
+            "  --metrics-format F       формат файлов --metrics: json или csv, независимо от --format (json)",
+            "  -h, --help               эта справка");
+
+    /** Одно задание: входной и выходной JAR */
+    public record Job(Path input, Path output) { }
+
+    private final List<Job> jobs = new ArrayList<>();
+    private final List<Path> libraries = new ArrayList<>();
+    private int parallelJobs = 1;
+    private int threads = 1;
+    private boolean rename;
+    private boolean renameMembers = true;
+    private StringEncryptorTransformer.Mode stringMode;
+    private int deadBranches;
+    private long antiDebugMillis = -1;
+    private boolean password;
+    private boolean binding;
+    private Long seed;
+    private Path profile;
+    private boolean streaming;
+    private Path cacheDir;
+    private String format = "json";
+    private Path report;
+    private Path metricsDir;
+    private String metricsFormat = "json";
+    private boolean help;
+
+    private CliOptions() {}
+
+    /** Разбирает аргументы; ошибки — IllegalArgumentException с текстом для пользователя */
+    public static CliOptions parse(String[] args) throws IOException {
+        return parse(args, Paths.get(""));
+    }
+
+    /** То же, но относительные пути считаются от workDir (например, каталога клиента демона) */
+    public static CliOptions parse(String[] args, Path workDir) throws IOException {
+        CliOptions o = new CliOptions();
+        Path outDir = null;
+        List<String[]> specs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String name = arg;
+            String value = null;
+            int eq = arg.indexOf('=');
+            if (arg.startsWith("--") && eq > 0) {
+                name = arg.substring(0, eq);
+                value = arg.substring(eq + 1);
+            }
+            switch (name) {
+                case "-h", "--help" -> o.help = true;
+                case "-o", "--out-dir" -> outDir = workDir.resolve(value != null ? value : next(args, ++i, name));
+                case "--batch" -> specs.addAll(readBatch(workDir.resolve(value != null ? value : next(args, ++i, name))));
+                case "-j", "--jobs" -> o.parallelJobs = positive(value != null ? value : next(args, ++i, name), name);
+                case "-t", "--threads" -> o.threads = positive(value != null ? value : next(args, ++i, name), name);
+                case "--rename" -> o.rename = true;
+                case "--no-members" -> o.renameMembers = false;
+                case "--strings" -> o.stringMode = stringMode(value);
+                case "--cf" -> o.deadBranches = value != null ? positive(value, name) : 2;
+                case "--anti" -> o.antiDebugMillis = value != null ? nonNegative(value, name) * 1000L : 0;
+                case "--password" -> o.password = true;
+                case "--binding" -> o.binding = true;
+                case "--lib" -> {
+                    for (String lib : (value != null ? value : next(args, ++i, name)).split(File.pathSeparator)) {
+                        if (!lib.isBlank()) o.libraries.add(workDir.resolve(lib.trim()));
+                    }
+                }
+                case "--seed" -> o.seed = number(value != null ? value : next(args, ++i, name), name);
+                case "--profile" -> o.profile = workDir.resolve(value != null ? value : next(args, ++i, name));
+                case "--streaming" -> o.streaming = true;
+                case "--cache" -> o.cacheDir = workDir.resolve(value != null ? value : next(args, ++i, name));
+                case "--format" -> o.format = format(value != null ? value : next(args, ++i, name), name);
+                case "--metrics-format" -> o.metricsFormat = format(value != null ? value : next(args, ++i, name), name);
+                case "--metrics" -> o.metricsDir = workDir.resolve(value != null ? value : next(args, ++i, name));
+                case "--report" -> o.report = workDir.resolve(value != null ? value : next(args, ++i, name));
+                default -> {
+                    if (arg.startsWith("-")) throw new IllegalArgumentException("неизвестный параметр " + arg);
+                    // in.jar или in.jar=out.jar
+                    specs.add(eq > 0
+                            ? new String[]{arg.substring(0, eq), arg.substring(eq + 1)}
+                            : new String[]{arg});
+                }
+            }
+        }
+
+        Set<Path> outputs = new HashSet<>();
+        for (String[] spec : specs) {
+            Path in = workDir.resolve(spec[0]);
+            Path out = spec.length > 1 ? workDir.resolve(spec[1]) : defaultOutput(in, outDir);
+            if (!outputs.add(out.toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("два задания пишут в один файл: " + out);
+            }
+            o.jobs.add(new Job(in, out));
+        }
+        if (!o.help && o.jobs.isEmpty()) throw new IllegalArgumentException("не задан ни один входной JAR");
+        return o;
+    }
+
+    private static List<String[]> readBatch(Path file) throws IOException {
+        List<String[]> specs = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            specs.add(line.split("\\s+", 2));
+        }
+        return specs;
+    }
+
+    private static Path defaultOutput(Path in, Path outDir) {
+        String name = in.getFileName().toString();
+        if (outDir != null) return outDir.resolve(name);
+        String base = name.endsWith(".jar") ? name.substring(0, name.length() - 4) : name;
+        return in.resolveSibling(base + "-obf.jar");
+    }
+
+    private static String next(String[] args, int i, String name) {
+        if (i >= args.length) throw new IllegalArgumentException(name + ": нет значения");
+        return args[i];
+    }
+
+    private static long number(String value, String name) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + ": ожидается число, а не " + value);
+        }
+    }
+
+    private static long nonNegative(String value, String name) {
+        long n = number(value, name);
+        if (n < 0) throw new IllegalArgumentException(name + ": ожидается число >= 0, а не " + value);
+        return n;
+    }
+
+    private static String format(String value, String name) {
+        if (!value.equals("json") && !value.equals("csv")) {
+            throw new IllegalArgumentException(name + ": json или csv, а не " + value);
+        }
+        return value;
+    }
+
+    private static int positive(String value, String name) {
+        long n = number(value, name);
+        if (n < 1 || n > Integer.MAX_VALUE) throw new IllegalArgumentException(name + ": ожидается число > 0");
+        return (int) n;
+    }
+
+    private static StringEncryptorTransformer.Mode stringMode(String value) {
+        if (value == null) return StringEncryptorTransformer.Mode.CALL;
+        return switch (value) {
+            case "call" -> StringEncryptorTransformer.Mode.CALL;
+            case "condy" -> StringEncryptorTransformer.Mode.CONSTANT_DYNAMIC;
+            case "table" -> StringEncryptorTransformer.Mode.CLASS_TABLE;
+            default -> throw new IllegalArgumentException("--strings: call, condy или table, а не " + value);
+        };
+    }
+
+    /** Новый набор трансформеров для одного JAR — порядок как в GUI */
+    public List<ITransformer> transformers() {
+        List<ITransformer> list = new ArrayList<>();
+        if (binding) list.add(new BindingTransformer());
+        if (rename) list.add(new RenamerTransformer());
+        if (stringMode != null) list.add(new StringEncryptorTransformer(stringMode));
+        if (deadBranches > 0) list.add(new ControlFlowTransformer());
+        if (antiDebugMillis >= 0) list.add(new AntiDebugTransformer(antiDebugMillis));
+        if (password) list.add(new PasswordTransformer());
+        return list;
+    }
+
+    /** Профиль читается один раз на пакет и разделяется заданиями (он неизменяемый) */
+    public MethodProfile loadProfile() throws IOException {
+        return profile != null ? MethodProfile.load(profile) : MethodProfile.empty();
+    }
+
+    public List<Job> getJobs() { return jobs; }
+    public List<Path> getLibraries() { return libraries; }
+    public int getParallelJobs() { return parallelJobs; }
+    public int getThreads() { return threads; }
+    public boolean isRenameMembers() { return renameMembers; }
+    public int getDeadBranches() { return deadBranches; }
+    public Long getSeed() { return seed; }
+    public boolean isStreaming() { return streaming; }
+    public Path getCacheDir() { return cacheDir; }
+    public String getFormat() { return format; }
+    public Path getReport() { return report; }
+    public Path getMetricsDir() { return metricsDir; }
+    public String getMetricsFormat() { return metricsFormat; }
+    public boolean isHelp() { return help; }
+}
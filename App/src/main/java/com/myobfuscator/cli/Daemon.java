@@ -0,0 +1,322 @@
+package com.myobfuscator.cli;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Демон в духе Gradle: одна тёплая JVM принимает задания CLI через Unix domain socket.
+ * Между заданиями живут загруженные и скомпилированные JIT'ом классы ASM и ядра,
+ * кэш классов JDK и библиотек (ClassHierarchy), так что повторная сборка платит
+ * только за саму обфускацию.
+ *
+ * Сокет и созданный для него каталог доступны только владельцу (0600/0700): задание
+ * читает и пишет любые пути с правами демона. Логи задания (System.out/err всех его
+ * потоков) уходят клиенту вместе с отчётом, а не в консоль демона.
+ *
+ * Протокол — строки UTF-8. Клиент: "RUN", рабочий каталог, число аргументов, аргументы
+ * (или "STOP"). Демон: строки "OUT ..." / "ERR ..." и последней — "EXIT код".
+ *
+ * Команды:
+ *   --daemon-start [--socket P] [--idle-timeout MIN]   запустить демон в этом процессе
+ *   --daemon-stop  [--socket P]                        остановить демон
+ *   --daemon [--socket P] <параметры CLI>              выполнить задания в демоне; если он
+ *                                                      не запущен — в этом процессе
+ */
+public final class Daemon {
+    static final Path DEFAULT_SOCKET = Paths.get(System.getProperty("user.home"), ".myobfuscator", "daemon.sock");
+    /** Как у Gradle: без заданий демон живёт 3 часа */
+    private static final long DEFAULT_IDLE_MINUTES = 180;
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIR = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_SOCKET = PosixFilePermissions.fromString("rw-------");
+
+    private final Path socket;
+    private final long idleMillis;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong lastActivity = new AtomicLong(System.currentTimeMillis());
+    private volatile ServerSocketChannel server;
+
+    private Daemon(Path socket, long idleMillis) {
+        this.socket = socket;
+        this.idleMillis = idleMillis;
+    }
+
+    public static boolean isCommand(String arg) {
+        return arg.equals("--daemon") || arg.equals("--daemon-start") || arg.equals("--daemon-stop");
+    }
+
+    /** Точка входа для команд демона; коды выхода — как у BatchRunner.main */
+    public static int main(String[] args, PrintStream out, PrintStream err) {
+        Path socket = DEFAULT_SOCKET;
+        long idleMinutes = DEFAULT_IDLE_MINUTES;
+        List<String> rest = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--socket" -> socket = Paths.get(value(args, ++i));
+                    case "--idle-timeout" -> idleMinutes = Long.parseLong(value(args, ++i));
+                    default -> rest.add(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("error: " + e.getMessage());
+            return 2;
+        }
+
+        try {
+            switch (args[0]) {
+                case "--daemon-start" -> {
+                    new Daemon(socket, idleMinutes * 60_000).serve();
+                    return 0;
+                }
+                case "--daemon-stop" -> {
+                    try (SocketChannel ch = connect(socket)) {
+                        send(ch, List.of("STOP"));
+                        return 0;
+                    } catch (IOException e) {
+                        err.println("daemon is not running");
+                        return 1;
+                    }
+                }
+                default -> {
+                    String[] cliArgs = rest.toArray(new String[0]);
+                    SocketChannel ch;
+                    try {
+                        ch = connect(socket);
+                    } catch (IOException e) {
+                        err.println("[Daemon] not running at " + socket + ", running in this process");
+                        return BatchRunner.main(cliArgs, out, err);
+                    }
+                    try (ch) {
+                        return request(ch, cliArgs, out, err);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            err.println("error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException(args[i - 1] + ": нет значения");
+        return args[i];
+    }
+
+    private static SocketChannel connect(Path socket) throws IOException {
+        return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+    }
+
+    private static boolean isRunning(Path socket) {
+        try {
+            connect(socket).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void send(SocketChannel ch, List<String> lines) throws IOException {
+        Writer w = Channels.newWriter(ch, StandardCharsets.UTF_8);
+        for (String line : lines) w.write(line + "\n");
+        w.flush();
+    }
+
+    private static int request(SocketChannel ch, String[] args, PrintStream out, PrintStream err) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("RUN");
+        lines.add(Paths.get("").toAbsolutePath().toString());
+        lines.add(Integer.toString(args.length));
+        lines.addAll(List.of(args));
+        send(ch, lines);
+
+        BufferedReader in = new BufferedReader(Channels.newReader(ch, StandardCharsets.UTF_8));
+        for (String line; (line = in.readLine()) != null; ) {
+            if (line.startsWith("OUT ")) out.println(line.substring(4));
+            else if (line.startsWith("ERR ")) err.println(line.substring(4));
+            else if (line.startsWith("EXIT ")) return Integer.parseInt(line.substring(5));
+        }
+        err.println("error: daemon closed the connection");
+        return 1;
+    }
+
+    /** Принимает задания, пока не придёт STOP или демон не простоит idleMillis без заданий */
+    private void serve() throws IOException {
+        Path dir = socket.toAbsolutePath().getParent();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(dir)) {
+            if (posix) {
+                Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIR));
+            } else {
+                Files.createDirectories(dir);
+            }
+        }
+        if (isRunning(socket)) throw new IOException("daemon is already running at " + socket);
+        Files.deleteIfExists(socket);  // сокет от упавшего демона
+
+        // задания пишут в System.out/err из своих потоков — направляем их клиенту
+        PrintStream console = System.err;
+        System.setOut(new PrintStream(new RoutedOutput(System.out), true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(new RoutedOutput(System.err), true, StandardCharsets.UTF_8));
+
+        ExecutorService clients = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "obfuscator-daemon-client");
+            t.setDaemon(true);
+            return t;
+        });
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server = channel;
+            bind(channel, dir, posix);
+            startIdleWatch();
+            console.println("[Daemon] listening on " + socket);
+            while (true) {
+                SocketChannel ch;
+                try {
+                    ch = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;  // STOP или простой
+                }
+                clients.execute(() -> handle(ch));
+            }
+        } finally {
+            clients.shutdownNow();
+            Files.deleteIfExists(socket);
+            console.println("[Daemon] stopped");
+        }
+    }
+
+    /**
+     * bind() создаёт файл сокета по umask, и пока права не урезаны, подключиться мог бы
+     * кто угодно. Поэтому сокет создаётся в новом каталоге 0700, получает 0600 и только
+     * потом атомарно переименовывается в socket — доступным для других он не бывает.
+     */
+    private void bind(ServerSocketChannel channel, Path dir, boolean posix) throws IOException {
+        if (!posix) {
+            channel.bind(UnixDomainSocketAddress.of(socket));
+            return;
+        }
+        Path tmpDir = Files.createTempDirectory(dir, ".obf", PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIR));
+        Path tmp = tmpDir.resolve("s");
+        try {
+            channel.bind(UnixDomainSocketAddress.of(tmp));
+            Files.setPosixFilePermissions(tmp, OWNER_ONLY_SOCKET);
+            Files.move(tmp, socket, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+            Files.deleteIfExists(tmpDir);
+        }
+    }
+
+    private void startIdleWatch() {
+        if (idleMillis <= 0) return;
+        Thread t = new Thread(() -> {
+            try {
+                while (server.isOpen()) {
+                    Thread.sleep(Math.min(idleMillis, 10_000));
+                    if (active.get() == 0 && System.currentTimeMillis() - lastActivity.get() >= idleMillis) {
+                        System.err.println("[Daemon] idle timeout");
+                        server.close();
+                    }
+                }
+            } catch (InterruptedException | IOException ignored) {
+            }
+        }, "obfuscator-daemon-idle");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void handle(SocketChannel ch) {
+        active.incrementAndGet();
+        try (ch) {
+            BufferedReader in = new BufferedReader(Channels.newReader(ch, StandardCharsets.UTF_8));
+            String command = in.readLine();
+            if ("STOP".equals(command)) {
+                server.close();
+                return;
+            }
+            if (!"RUN".equals(command)) return;
+            Path workDir = Paths.get(in.readLine());
+            String[] args = new String[Integer.parseInt(in.readLine())];
+            for (int i = 0; i < args.length; i++) args[i] = in.readLine();
+
+            ByteArrayOutputStream outBuf = new ByteArrayOutputStream();
+            ByteArrayOutputStream errBuf = new ByteArrayOutputStream();
+            int code;
+            try (PrintStream out = new PrintStream(outBuf, true, StandardCharsets.UTF_8);
+                 PrintStream err = new PrintStream(errBuf, true, StandardCharsets.UTF_8)) {
+                // логи трансформеров — в stderr клиента, как у CLI без демона
+                RoutedOutput.TARGET.set(err);
+                try {
+                    code = BatchRunner.main(args, workDir, out, err);
+                } finally {
+                    RoutedOutput.TARGET.remove();
+                }
+            }
+
+            List<String> reply = new ArrayList<>();
+            outBuf.toString(StandardCharsets.UTF_8).lines().forEach(l -> reply.add("OUT " + l));
+            errBuf.toString(StandardCharsets.UTF_8).lines().forEach(l -> reply.add("ERR " + l));
+            reply.add("EXIT " + code);
+            send(ch, reply);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            lastActivity.set(System.currentTimeMillis());
+            active.decrementAndGet();
+        }
+    }
+
+    /**
+     * Подменяет System.out/err демона: пишет в поток текущего задания, если он задан для
+     * этого потока, иначе — в консоль. InheritableThreadLocal: пулы BatchRunner'а и ядра
+     * создают потоки внутри задания и наследуют его поток вывода.
+     */
+    private static final class RoutedOutput extends OutputStream {
+        static final InheritableThreadLocal<PrintStream> TARGET = new InheritableThreadLocal<>();
+
+        private final PrintStream console;
+
+        RoutedOutput(PrintStream console) {
+            this.console = console;
+        }
+
+        private PrintStream target() {
+            PrintStream t = TARGET.get();
+            return t != null ? t : console;
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+    }
+}
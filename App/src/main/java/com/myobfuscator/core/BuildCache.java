@@ -0,0 +1,105 @@
+package com.myobfuscator.core;
+
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Дисковый кэш уже обфусцированных классов для инкрементальных прогонов.
+ * Ключ = SHA-256 от (настройки трансформеров + байты исходного класса + текущее
+ * переименование всех классов, на которые он ссылается). Поэтому класс берётся из
+ * кэша, только если не изменился ни он сам, ни имена его зависимостей.
+ */
+public class BuildCache {
+    private final Path classesDir;
+    private final byte[] configDigest;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public BuildCache(Path dir, String configFingerprint) throws IOException {
+        this.classesDir = dir.resolve("classes");
+        Files.createDirectories(classesDir);
+        this.configDigest = sha256().digest(configFingerprint.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param mapping новое имя для внутреннего имени класса (null — класс не переименовывается)
+     */
+    public String keyFor(byte[] classBytes, Function<String, String> mapping) {
+        MessageDigest md = sha256();
+        md.update(configDigest);
+        md.update(classBytes);
+        ClassReader cr = new ClassReader(classBytes);
+        for (int i = 1; i < cr.getItemCount(); i++) {
+            int offset = cr.getItem(i);
+            if (offset == 0 || classBytes[offset - 1] != 1 /* CONSTANT_Utf8 */) continue;
+            // имена классов и дескрипторы не содержат \0 и суррогатов, так что modified UTF-8 == UTF-8
+            int len = cr.readUnsignedShort(offset);
+            digestReferences(md, new String(classBytes, offset + 2, len, StandardCharsets.UTF_8), mapping);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /** Строка из пула констант может быть именем класса, дескриптором или сигнатурой */
+    private static void digestReferences(MessageDigest md, String s, Function<String, String> mapping) {
+        digestName(md, s, mapping);
+        for (int start = s.indexOf('L'); start >= 0; start = s.indexOf('L', start + 1)) {
+            int end = start + 1;
+            while (end < s.length() && s.charAt(end) != ';' && s.charAt(end) != '<') end++;
+            if (end < s.length()) digestName(md, s.substring(start + 1, end), mapping);
+        }
+    }
+
+    private static void digestName(MessageDigest md, String name, Function<String, String> mapping) {
+        String mapped = mapping.apply(name);
+        if (mapped != null) {
+            md.update(name.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) '=');
+            md.update(mapped.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) ';');
+        }
+    }
+
+    public byte[] get(String key) {
+        Path p = pathFor(key);
+        try {
+            byte[] bytes = Files.readAllBytes(p);
+            hits.incrementAndGet();
+            return bytes;
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(String key, byte[] bytes) throws IOException {
+        Path p = pathFor(key);
+        Files.createDirectories(p.getParent());
+        // пишем во временный файл и переименовываем — параллельные прогоны не увидят половину файла
+        Path tmp = Files.createTempFile(p.getParent(), key, ".tmp");
+        Files.write(tmp, bytes);
+        Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int getHits() { return hits.get(); }
+    public int getMisses() { return misses.get(); }
+
+    private Path pathFor(String key) {
+        return classesDir.resolve(key.substring(0, 2)).resolve(key.substring(2) + ".class");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.myobfuscator.core;
+
+import com.myobfuscator.io.JarSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс иерархии классов: входной JAR + JDK + библиотеки из ctx.getLibraries().
+ * Строится один раз за прогон: классы JAR'а читаются сразу (без кода методов),
+ * библиотечные — лениво, при первом обращении. Нужен Renamer'у (переопределения и
+ * реализации интерфейсов) и ClassWriter'у ядра (getCommonSuperClass без загрузки классов).
+ */
+public final class ClassHierarchy implements Closeable {
+    /**
+     * Классы JDK в пределах процесса не меняются, поэтому кэш общий для всех прогонов.
+     * Только найденные классы: остальные имена (библиотечные и ненайденные) кэширует
+     * libraryClasses — он живёт один прогон или один из LIBRARY_SETS наборов, а этот
+     * кэш в демоне рос бы на каждое новое имя
+     */
+    private static final Map<String, ClassInfo> JDK_CLASSES = new ConcurrentHashMap<>();
+    private static final String OBJECT = "java/lang/Object";
+    /**
+     * Классы библиотек по отпечатку набора JAR'ов (путь, размер, время изменения): в
+     * долгоживущем процессе (демон) повторный прогон с теми же библиотеками их не перечитывает.
+     * Последние LIBRARY_SETS наборов; каталоги не кэшируются — их содержимое отпечаток не покрывает.
+     */
+    private static final int LIBRARY_SETS = 8;
+    private static final Map<String, Map<String, Optional<ClassInfo>>> LIBRARY_CLASSES =
+            Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, Optional<ClassInfo>>> eldest) {
+                    return size() > LIBRARY_SETS;
+                }
+            });
+
+    private final Map<String, ClassInfo> jarClasses = new LinkedHashMap<>();
+    private final Map<String, Optional<ClassInfo>> libraryClasses;
+    private final URLClassLoader libraries;
+
+    /** Метод или поле: только то, что нужно для разрешения ссылок */
+    public record Member(int access, String name, String desc) {
+        public boolean isPrivate() { return (access & Opcodes.ACC_PRIVATE) != 0; }
+        public boolean isStatic() { return (access & Opcodes.ACC_STATIC) != 0; }
+    }
+
+    public record ClassInfo(String name, int access, String superName, List<String> interfaces,
+                            List<Member> methods, List<Member> fields) {
+        public boolean isInterface() { return (access & Opcodes.ACC_INTERFACE) != 0; }
+
+        /** super + интерфейсы, без null */
+        public List<String> supertypes() {
+            List<String> list = new ArrayList<>(interfaces.size() + 1);
+            if (superName != null) list.add(superName);
+            list.addAll(interfaces);
+            return list;
+        }
+    }
+
+    private ClassHierarchy(URLClassLoader libraries, Map<String, Optional<ClassInfo>> libraryClasses) {
+        this.libraries = libraries;
+        this.libraryClasses = libraryClasses;
+    }
+
+    public static ClassHierarchy build(JarSource jar, List<Path> libraryPaths) throws IOException {
+        return build(jar, libraryPaths, () -> { });
+    }
+
+    /** checkCancelled вызывается перед каждым классом JAR'а и может прервать построение исключением */
+    public static ClassHierarchy build(JarSource jar, List<Path> libraryPaths, Runnable checkCancelled)
+            throws IOException {
+        URL[] urls = new URL[libraryPaths.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = libraryPaths.get(i).toUri().toURL();
+        }
+        // parent = null: JDK ищем сами через platform loader, здесь только библиотеки
+        ClassHierarchy h = new ClassHierarchy(new URLClassLoader(urls, null), libraryCache(libraryPaths));
+        for (JarSource.Entry entry : jar.entries()) {
+            if (!entry.isClass()) continue;
+            checkCancelled.run();
+            ClassInfo info = read(jar.read(entry));
+            h.jarClasses.putIfAbsent(info.name(), info);
+        }
+        return h;
+    }
+
+    private static Map<String, Optional<ClassInfo>> libraryCache(List<Path> libraryPaths) throws IOException {
+        if (libraryPaths.isEmpty()) return new ConcurrentHashMap<>();
+        StringBuilder key = new StringBuilder();
+        for (Path p : libraryPaths) {
+            if (!Files.isRegularFile(p)) return new ConcurrentHashMap<>();
+            key.append(p.toAbsolutePath().normalize()).append('|').append(Files.size(p))
+                    .append('|').append(Files.getLastModifiedTime(p).toMillis()).append('\n');
+        }
+        return LIBRARY_CLASSES.computeIfAbsent(key.toString(), k -> new ConcurrentHashMap<>());
+    }
+
+    /** Классы входного JAR в порядке записей */
+    public Collection<ClassInfo> jarClasses() {
+        return Collections.unmodifiableCollection(jarClasses.values());
+    }
+
+    public boolean isJarClass(String internalName) {
+        return jarClasses.containsKey(internalName);
+    }
+
+    /** Класс JAR'а, JDK или библиотеки; null — класс не найден (или это массив) */
+    public ClassInfo get(String internalName) {
+        ClassInfo info = jarClasses.get(internalName);
+        if (info != null || internalName.startsWith("[")) return info;
+        ClassInfo jdk = JDK_CLASSES.get(internalName);
+        if (jdk != null) return jdk;
+        Optional<ClassInfo> known = libraryClasses.get(internalName);
+        if (known != null) return known.orElse(null);
+        Optional<ClassInfo> loaded = load(ClassLoader.getPlatformClassLoader(), internalName);
+        if (loaded.isPresent()) {
+            JDK_CLASSES.putIfAbsent(internalName, loaded.get());
+            return loaded.get();
+        }
+        return libraryClasses.computeIfAbsent(internalName, n -> load(libraries, n)).orElse(null);
+    }
+
+    /** true, если type совпадает с superType или наследует/реализует его */
+    public boolean isAssignable(String superType, String type) {
+        if (superType.equals(type) || superType.equals(OBJECT)) return true;
+        Deque<String> queue = new ArrayDeque<>();
+        Set<String> seen = new HashSet<>();
+        queue.add(type);
+        while (!queue.isEmpty()) {
+            ClassInfo info = get(queue.poll());
+            if (info == null) continue;
+            for (String s : info.supertypes()) {
+                if (s.equals(superType)) return true;
+                if (seen.add(s)) queue.add(s);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * То же, что ClassWriter.getCommonSuperClass, но по индексу: без Class.forName,
+     * поэтому работает и для классов входного JAR. Неизвестные типы сводятся к Object.
+     */
+    public String getCommonSuperClass(String type1, String type2) {
+        ClassInfo c1 = get(type1);
+        ClassInfo c2 = get(type2);
+        if (c1 == null || c2 == null) return OBJECT;
+        if (isAssignable(type1, type2)) return type1;
+        if (isAssignable(type2, type1)) return type2;
+        if (c1.isInterface() || c2.isInterface()) return OBJECT;
+        for (String s = c1.superName(); s != null; ) {
+            if (isAssignable(s, type2)) return s;
+            ClassInfo info = get(s);
+            s = info != null ? info.superName() : null;
+        }
+        return OBJECT;
+    }
+
+    private static Optional<ClassInfo> load(ClassLoader loader, String internalName) {
+        try (InputStream is = loader.getResourceAsStream(internalName + ".class")) {
+            return is == null ? Optional.empty() : Optional.of(read(is.readAllBytes()));
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static ClassInfo read(byte[] bytes) {
+        List<Member> methods = new ArrayList<>();
+        List<Member> fields = new ArrayList<>();
+        String[] header = new String[2];
+        int[] access = new int[1];
+        List<String> interfaces = new ArrayList<>();
+        new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public void visit(int version, int acc, String name, String signature,
+                              String superName, String[] ifaces) {
+                header[0] = name;
+                header[1] = superName;
+                access[0] = acc;
+                if (ifaces != null) interfaces.addAll(Arrays.asList(ifaces));
+            }
+
+            @Override
+            public FieldVisitor visitField(int acc, String name, String desc, String signature, Object value) {
+                fields.add(new Member(acc, name, desc));
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int acc, String name, String desc, String signature,
+                                             String[] exceptions) {
+                methods.add(new Member(acc, name, desc));
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return new ClassInfo(header[0], access[0], header[1], List.copyOf(interfaces),
+                List.copyOf(methods), List.copyOf(fields));
+    }
+
+    @Override
+    public void close() throws IOException {
+        libraries.close();
+    }
+}
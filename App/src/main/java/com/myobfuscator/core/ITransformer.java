@@ -8,4 +8,29 @@ public interface ITransformer {
     void transform(ClassNode classNode);
 
     void finish(ObfuscationContext context);
+
+    /**
+     * true — transform() можно вызывать одновременно для разных классов из разных потоков.
+     * Такие трансформеры ObfuscatorCore прогоняет параллельно, остальные — строго по очереди.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * true — после transform() кадры StackMapTable (классы читаются с EXPAND_FRAMES) остаются
+     * верными: трансформер не добавляет ветвлений или сам ставит кадры на их метки.
+     * Если так у всех трансформеров, ядро пишет классы без COMPUTE_FRAMES.
+     */
+    default boolean preservesFrames() {
+        return false;
+    }
+
+    /**
+     * Настройки, от которых зависит результат transform() помимо байтов самого класса
+     * (ключи, имена инжектируемых классов и т.п.). Входит в ключ BuildCache.
+     */
+    default String cacheFingerprint() {
+        return "";
+    }
 }
@@ -0,0 +1,132 @@
+package com.myobfuscator.core;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Профиль горячих методов: какие методы нельзя утяжелять инструментацией.
+ * Горячими считаются самые частые методы, на которые вместе приходится coverage
+ * всех сэмплов (по умолчанию 90%). Имена — исходные, до Renamer'а.
+ *
+ * Форматы:
+ * - JFR-запись (*.jfr): считаются верхние Java-кадры событий jdk.ExecutionSample,
+ *   например из java -XX:StartFlightRecording=filename=app.jfr;
+ * - CSV: class,method,descriptor,samples. Класс — через '.' или '/', пустой дескриптор
+ *   или '*' — все перегрузки; строки с '#' и заголовок пропускаются.
+ */
+public final class MethodProfile {
+    public static final double DEFAULT_COVERAGE = 0.9;
+    private static final MethodProfile EMPTY = new MethodProfile(Map.of(), DEFAULT_COVERAGE);
+
+    // owner.name+desc и owner.name (для профилей без дескрипторов)
+    private final Set<String> hot = new HashSet<>();
+    private final long totalSamples;
+
+    private MethodProfile(Map<String, Long> samples, double coverage) {
+        long total = 0;
+        for (long n : samples.values()) total += n;
+        this.totalSamples = total;
+
+        List<Map.Entry<String, Long>> byCount = new ArrayList<>(samples.entrySet());
+        byCount.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        long covered = 0;
+        for (Map.Entry<String, Long> e : byCount) {
+            if (covered >= coverage * total) break;
+            hot.add(e.getKey());
+            covered += e.getValue();
+        }
+    }
+
+    /** Профиль без горячих методов: всё инструментируется как обычно */
+    public static MethodProfile empty() {
+        return EMPTY;
+    }
+
+    public static MethodProfile load(Path file) throws IOException {
+        return load(file, DEFAULT_COVERAGE);
+    }
+
+    public static MethodProfile load(Path file, double coverage) throws IOException {
+        Map<String, Long> samples = file.getFileName().toString().endsWith(".jfr")
+                ? readJfr(file)
+                : readCsv(file);
+        MethodProfile profile = new MethodProfile(samples, coverage);
+        System.out.println("[Profile] " + profile.hot.size() + " hot of " + samples.size()
+                + " sampled methods (" + profile.totalSamples + " samples)");
+        return profile;
+    }
+
+    private static Map<String, Long> readJfr(Path file) throws IOException {
+        Map<String, Long> samples = new HashMap<>();
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                if (!"jdk.ExecutionSample".equals(event.getEventType().getName())
+                        || event.getStackTrace() == null) continue;
+                for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                    if (!frame.isJavaFrame()) continue;
+                    RecordedMethod m = frame.getMethod();
+                    samples.merge(key(m.getType().getName(), m.getName(), m.getDescriptor()), 1L, Long::sum);
+                    break;
+                }
+            }
+        }
+        return samples;
+    }
+
+    private static Map<String, Long> readCsv(Path file) throws IOException {
+        Map<String, Long> samples = new HashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] cols = line.split(",", -1);
+            if (cols.length < 4) continue;
+            long count;
+            try {
+                count = Long.parseLong(cols[3].trim());
+            } catch (NumberFormatException e) {
+                continue; // заголовок
+            }
+            String desc = cols[2].trim();
+            samples.merge(key(cols[0].trim(), cols[1].trim(), desc.equals("*") ? "" : desc), count, Long::sum);
+        }
+        return samples;
+    }
+
+    private static String key(String owner, String name, String desc) {
+        return owner.replace('.', '/') + "." + name + desc;
+    }
+
+    /** owner — исходное внутреннее имя класса */
+    public boolean isHot(String owner, String name, String desc) {
+        if (hot.isEmpty()) return false;
+        String method = owner + "." + name;
+        return hot.contains(method + desc) || hot.contains(method);
+    }
+
+    public boolean isEmpty() {
+        return hot.isEmpty();
+    }
+
+    /** Отпечаток набора горячих методов — для ключа BuildCache */
+    public String fingerprint() {
+        if (hot.isEmpty()) return "";
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String key : new TreeSet<>(hot)) md.update((key + "\n").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
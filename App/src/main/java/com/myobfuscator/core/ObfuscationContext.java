@@ -1,8 +1,11 @@
 package com.myobfuscator.core;
 
+import com.myobfuscator.io.JarSource;
+
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
 
 public class ObfuscationContext {
     private final Path inputJar;
@@ -10,9 +13,21 @@ public class ObfuscationContext {
     private final List<ITransformer> transformers;
 
     private final int deadBranchCount;
-    private final Random random = new Random(/*seed из GUI*/);
-
-    public final Random getRandom() { return random; }
+    private int parallelism = 1;
+    private boolean streaming;
+    private int pipelineDepth;
+    private JarSource jar;
+    private Path cacheDir;
+    private List<Path> libraries = List.of();
+    private boolean renameMembers = true;
+    private ClassHierarchy hierarchy;
+    private MethodProfile profile = MethodProfile.empty();
+    private long seed = new SplittableRandom().nextLong();
+    private boolean seedFixed;
+    private Path metricsReport;
+    private int metricsTopClasses = 20;
+    private ProgressListener progressListener;
+    private volatile boolean cancelled;
 
     public ObfuscationContext(Path inputJar, Path outputJar, List<ITransformer> transformers, int deadBranchCount) {
         this.inputJar = inputJar;
@@ -22,9 +37,108 @@ public class ObfuscationContext {
     }
 
     public Path getInputJar() { return inputJar; }
+
+    /** Входной JAR, открытый ObfuscatorCore на время run(); трансформерам не нужно открывать его заново */
+    public JarSource getJar() { return jar; }
+    void setJar(JarSource jar) { this.jar = jar; }
+
+    /** Иерархия классов входного JAR, JDK и библиотек; строится ядром один раз на run() */
+    public ClassHierarchy getHierarchy() { return hierarchy; }
+    void setHierarchy(ClassHierarchy hierarchy) { this.hierarchy = hierarchy; }
+
     public Path getOutputJar() { return outputJar; }
     public List<ITransformer> getTransformers() { return transformers; }
     public int getDeadBranchCount() {
         return deadBranchCount;
     }
-}
\ No newline at end of file
+
+    /** Сколько потоков использовать на шаге трансформации (1 — последовательно) */
+    public int getParallelism() { return parallelism; }
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /** Потоковый режим: классы не копятся в памяти, а сразу пишутся в выходной JAR */
+    public boolean isStreaming() { return streaming; }
+    public void setStreaming(boolean streaming) { this.streaming = streaming; }
+
+    /** Сколько классов одновременно может находиться в конвейере (по умолчанию 4 на поток) */
+    public int getPipelineDepth() {
+        return pipelineDepth > 0 ? pipelineDepth : parallelism * 4;
+    }
+    public void setPipelineDepth(int pipelineDepth) { this.pipelineDepth = pipelineDepth; }
+
+    /** Каталог инкрементального кэша (null — кэш выключен) */
+    public Path getCacheDir() { return cacheDir; }
+    public void setCacheDir(Path cacheDir) { this.cacheDir = cacheDir; }
+
+    /** JAR'ы/каталоги библиотек, от которых зависит входной JAR (JDK подключается сам) */
+    public List<Path> getLibraries() { return libraries; }
+    public void setLibraries(List<Path> libraries) { this.libraries = List.copyOf(libraries); }
+
+    /** Переименовывать ли методы и поля (а не только классы) */
+    public boolean isRenameMembers() { return renameMembers; }
+    public void setRenameMembers(boolean renameMembers) { this.renameMembers = renameMembers; }
+
+    /** Seed прогона: с одним и тем же seed результат воспроизводим (по умолчанию — случайный) */
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.seedFixed = true;
+    }
+
+    /** true — seed задан явно (GUI/ядро), а не выбран случайно при создании контекста */
+    public boolean isSeedFixed() { return seedFixed; }
+
+    /**
+     * Генератор для уровня иерархии: seed прогона → трансформер → класс → метод.
+     * Зависит только от seed и этих имён, поэтому любой класс можно обработать отдельно,
+     * в любом потоке и в любом порядке, и получить тот же результат.
+     *
+     * @param className исходное внутреннее имя класса (null — уровень трансформера)
+     * @param method    имя+дескриптор метода (null — уровень класса)
+     */
+    public SplittableRandom random(Class<? extends ITransformer> transformer, String className, String method) {
+        long h = mix(seed, transformer.getName());
+        if (className != null) h = mix(h, className);
+        if (method != null) h = mix(h, method);
+        return new SplittableRandom(h);
+    }
+
+    /** FNV-1a по символам name поверх родительского значения */
+    private static long mix(long parent, String name) {
+        long h = parent ^ 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) h = (h ^ name.charAt(i)) * 0x100000001b3L;
+        return h;
+    }
+
+    /** Отчёт RunMetrics по фазам и трансформерам: *.json или *.csv (null — без отчёта) */
+    public Path getMetricsReport() { return metricsReport; }
+    public void setMetricsReport(Path metricsReport) { this.metricsReport = metricsReport; }
+
+    /** Сколько самых медленных классов попадает в отчёт */
+    public int getMetricsTopClasses() { return metricsTopClasses; }
+    public void setMetricsTopClasses(int metricsTopClasses) { this.metricsTopClasses = Math.max(0, metricsTopClasses); }
+
+    /** Кому сообщать о ходе прогона (null — никому); вызывается из рабочих потоков ядра */
+    public ProgressListener getProgressListener() { return progressListener; }
+    public void setProgressListener(ProgressListener progressListener) { this.progressListener = progressListener; }
+
+    /** true — прогон попросили прервать (ObfuscatorCore.cancel()) */
+    public boolean isCancelled() { return cancelled; }
+    void cancel() { cancelled = true; }
+
+    /**
+     * Бросает CancellationException, если прогон отменён. Зовётся на каждом шаге над классом:
+     * ядром, а трансформерами — в предварительных проходах init() по всему JAR'у
+     */
+    public void checkCancelled() {
+        if (cancelled) throw new CancellationException("Обфускация отменена");
+    }
+
+    /** Профиль горячих методов: AntiDebug их пропускает, ControlFlow не выводит за пороги инлайнинга */
+    public MethodProfile getProfile() { return profile; }
+    public void setProfile(MethodProfile profile) {
+        this.profile = profile != null ? profile : MethodProfile.empty();
+    }
+}
@@ -1,5 +1,8 @@
 package com.myobfuscator.core;
 
+import com.myobfuscator.io.JarSink;
+import com.myobfuscator.io.JarSource;
+import com.myobfuscator.transformer.AntiDebugTransformer;
 import com.myobfuscator.transformer.BindingTransformer;
 import com.myobfuscator.transformer.PasswordTransformer;
 import com.myobfuscator.transformer.StringEncryptorTransformer;
@@ -8,44 +11,283 @@ import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.tree.ClassNode;
 
-import java.io.InputStream;
+import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.jar.*;
 
 public class ObfuscatorCore {
+    private static final String SEED_FILE = "seed.txt";
+
     private final ObfuscationContext ctx;
+    private BuildCache cache;
+    private Function<String, String> mapping = name -> null;
+    // старое ↔ новое имя класса: ClassWriter видит уже переименованные классы, а индекс — исходные
+    private Function<String, String> originalName = Function.identity();
+    private Function<String, String> renamedName = Function.identity();
+    private boolean framesPreserved;
+    private RunMetrics metrics;
+    // счётчики для ProgressListener
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final AtomicInteger readCount = new AtomicInteger();
+    private final AtomicInteger transformedCount = new AtomicInteger();
+    private final AtomicInteger writtenCount = new AtomicInteger();
+    private final AtomicLong lastReport = new AtomicLong();
+    private long startNanos;
 
     public ObfuscatorCore(ObfuscationContext ctx) {
         this.ctx = ctx;
     }
 
+    /**
+     * Просит прервать run() из любого потока. Флаг проверяется перед каждым шагом над
+     * классом — и ядром, и предварительными проходами init() (ctx.checkCancelled()),
+     * так что run() завершается CancellationException не позже чем через один класс;
+     * выходной JAR при этом не создаётся и не затирается.
+     */
+    public void cancel() {
+        ctx.cancel();
+    }
+
+    public boolean isCancelled() {
+        return ctx.isCancelled();
+    }
+
     public void run() throws Exception {
+        metrics = RunMetrics.create(ctx.getMetricsReport() != null);
+        startNanos = System.nanoTime();
+        lastReport.set(startNanos);
+        // 0) Открываем входной JAR один раз на весь прогон
+        try (JarSource jar = JarSource.open(ctx.getInputJar());
+             ClassHierarchy hierarchy = buildHierarchy(jar)) {
+            ctx.setJar(jar);
+            ctx.setHierarchy(hierarchy);
+            process(jar);
+            report(true);
+            if (ctx.getMetricsReport() != null) {
+                metrics.write(ctx.getMetricsReport(), ctx.getInputJar(), ctx.getMetricsTopClasses());
+            }
+        } finally {
+            ctx.setJar(null);
+            ctx.setHierarchy(null);
+        }
+    }
+
+    private ClassHierarchy buildHierarchy(JarSource jar) throws IOException {
+        RunMetrics.Scope s = metrics.begin(RunMetrics.HIERARCHY, null);
+        ClassHierarchy hierarchy = ClassHierarchy.build(jar, ctx.getLibraries(), ctx::checkCancelled);
+        s.end(hierarchy.jarClasses().size(), 0);
+        return hierarchy;
+    }
+
+    private void process(JarSource jar) throws Exception {
+        // 0.1) Seed прогона. При инкрементальной сборке случайный seed живёт в кэше,
+        // иначе закэшированные классы разошлись бы с заново обработанными
+        if (ctx.getCacheDir() != null && !ctx.isSeedFixed()) {
+            loadOrCreateSeed(ctx.getCacheDir().resolve(SEED_FILE));
+        }
+        System.out.println("[Core] seed = " + ctx.getSeed());
+
         // 1) Инициализируем все трансформеры
         for (ITransformer t : ctx.getTransformers()) {
+            checkCancelled();
+            RunMetrics.Scope s = metrics.begin(RunMetrics.INIT, name(t));
             t.init(ctx);
+            s.end(0, 0);
         }
 
-        // 2) Обеспечиваем порядок: сначала шифрование строк → потом переименование
-        ctx.getTransformers().sort((a, b) -> {
-            if (a instanceof StringEncryptorTransformer && b instanceof RenamerTransformer) return -1;
-            if (a instanceof RenamerTransformer     && b instanceof StringEncryptorTransformer) return 1;
-            return 0;
-        });
+        // 2) Обеспечиваем порядок: Renamer последний. Остальные трансформеры видят исходные
+        // имена (профиль горячих методов, ссылки на инжектируемые классы), а Renamer
+        // переименовывает и то, что они вставили. Сортировка стабильная.
+        ctx.getTransformers().sort(Comparator.comparing(t -> t instanceof RenamerTransformer));
+
+        for (ITransformer t : ctx.getTransformers()) {
+            if (t instanceof RenamerTransformer ren) {
+                originalName = ren::originalName;
+                renamedName = name -> ren.getClassMap().getOrDefault(name, name);
+            }
+        }
+
+        framesPreserved = ctx.getTransformers().stream().allMatch(ITransformer::preservesFrames);
+
+        // 2.1) Инкрементальный кэш: ключ зависит от настроек всех трансформеров
+        if (ctx.getCacheDir() != null) {
+            cache = new BuildCache(ctx.getCacheDir(), configFingerprint());
+            for (ITransformer t : ctx.getTransformers()) {
+                if (t instanceof RenamerTransformer ren) mapping = ren::describeMapping;
+            }
+        }
 
         // 3) Читаем манифест исходного JAR
-        Manifest manifest;
-        try (JarFile inJar = new JarFile(ctx.getInputJar().toFile())) {
-            manifest = inJar.getManifest();
+        RunMetrics.Scope manifestScope = metrics.begin(RunMetrics.MANIFEST, null);
+        Manifest manifest = jar.getManifest();
+        manifestScope.end(0, 0);
+        if (manifest == null) {
+            manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        }
+
+        // 4) Собираем классы, которые инжектятся в выходной JAR
+        RunMetrics.Scope injectScope = metrics.begin(RunMetrics.INJECT, null);
+        List<ClassNode> injected = injectedClasses();
+        injectScope.end(injected.size(), 0);
+        totalCount.set(injected.size() + (int) jar.entries().stream().filter(JarSource.Entry::isClass).count());
+        readCount.addAndGet(injected.size());
+
+        if (ctx.isStreaming()) {
+            runStreaming(jar, manifest, injected);
+        } else {
+            runInMemory(jar, manifest, injected);
         }
 
-        // 4) Собираем список ClassNode
-        List<ClassNode> allClasses = new ArrayList<>();
+        if (cache != null) {
+            System.out.println("[Cache] reused " + cache.getHits() + " of "
+                    + (cache.getHits() + cache.getMisses()) + " classes");
+        }
+    }
+
+    private void loadOrCreateSeed(Path seedFile) throws IOException {
+        if (Files.exists(seedFile)) {
+            ctx.setSeed(Long.parseLong(Files.readString(seedFile).trim()));
+            return;
+        }
+        Files.createDirectories(seedFile.getParent());
+        Files.writeString(seedFile, Long.toString(ctx.getSeed()));
+    }
+
+    private String configFingerprint() {
+        StringBuilder sb = new StringBuilder("dead=").append(ctx.getDeadBranchCount())
+                .append("|seed=").append(ctx.getSeed())
+                .append("|profile=").append(ctx.getProfile().fingerprint());
+        for (ITransformer t : ctx.getTransformers()) {
+            sb.append('|').append(t.getClass().getName()).append('{').append(t.cacheFingerprint()).append('}');
+        }
+        return sb.toString();
+    }
+
+    /** Классический режим: все ClassNode в памяти, запись только после всех трансформаций */
+    private void runInMemory(JarSource jar, Manifest manifest, List<ClassNode> injected) throws Exception {
+        List<ClassNode> allClasses = new ArrayList<>(injected);
+        List<ClassSlot> slots = new ArrayList<>();
+
+        // 4.4) Загружаем все .class из входного JAR (неизменённые берём из кэша)
+        for (JarSource.Entry entry : jar.entries()) {
+            if (!entry.isClass()) continue;
+            checkCancelled();
+            RunMetrics.Scope s = metrics.begin(RunMetrics.LOAD, null);
+            byte[] bytes = jar.read(entry);
+            String key = cache != null ? cache.keyFor(bytes, mapping) : null;
+            byte[] cached = key != null ? cache.get(key) : null;
+            if (cached != null) {
+                slots.add(new ClassSlot(null, key, cachedOutput(cached)));
+                s.endClass(className(entry), bytes.length);
+                readCount.incrementAndGet();
+                transformedCount.incrementAndGet();
+                report(false);
+                continue;
+            }
+            ClassNode cn = readClass(bytes);
+            s.endClass(cn.name, bytes.length);
+            readCount.incrementAndGet();
+            report(false);
+            allClasses.add(cn);
+            slots.add(new ClassSlot(cn, key, null));
+        }
+
+        // 5) Применяем трансформеры ко всем классам
+        transformAll(allClasses);
+
+        // 6) Завершаем трансформеры
+        finishAll();
+
+        // 7) Обновляем Main-Class в манифесте, если его переименовал Renamer
+        remapMainClass(manifest);
+
+        // 8) Записываем новый JAR
+        writeOutput(manifest, outJar -> {
+            Set<String> written = new HashSet<>();
+            // 8.1) Пишем все классы
+            for (ClassNode cn : injected) {
+                writeClass(outJar, written, cn.name + ".class", toBytes(cn));
+            }
+            for (ClassSlot slot : slots) {
+                ClassOutput out = slot.cached();
+                if (out == null) {
+                    out = new ClassOutput(slot.node().name + ".class", toBytes(slot.node()));
+                    if (slot.cacheKey() != null) cache.put(slot.cacheKey(), out.bytes());
+                }
+                writeClass(outJar, written, out.entryName(), out.bytes());
+            }
+            // 8.2) Копируем прочие ресурсы из входного JAR
+            copyResources(jar, outJar, written);
+        });
+    }
+
+    /**
+     * Потоковый режим: класс читается, трансформируется и сразу пишется в выходной JAR.
+     * Глобальные данные (карта Renamer'а) уже собраны в init() лёгким проходом по именам,
+     * поэтому держать в памяти весь JAR не нужно — одновременно живут не больше
+     * getPipelineDepth() классов. Инжектированные классы пишутся в конце, после finish().
+     */
+    private void runStreaming(JarSource jar, Manifest manifest, List<ClassNode> injected) throws Exception {
+        // 7) Main-Class известен заранее: карта Renamer'а готова после init()
+        remapMainClass(manifest);
+
+        writeOutput(manifest, outJar -> {
+            Set<String> written = new HashSet<>();
+
+            // 5) + 8.1) Классы входного JAR: parse → transform → ClassWriter → запись
+            streamClasses(jar, outJar, written);
+
+            // 5) Инжектированные классы
+            transformAll(injected);
+
+            // 6) Завершаем трансформеры
+            finishAll();
+
+            for (ClassNode cn : injected) {
+                writeClass(outJar, written, cn.name + ".class", toBytes(cn));
+            }
+
+            // 8.2) Копируем прочие ресурсы из входного JAR
+            copyResources(jar, outJar, written);
+        });
+    }
+
+    private void finishAll() throws Exception {
+        for (ITransformer t : ctx.getTransformers()) {
+            checkCancelled();
+            RunMetrics.Scope s = metrics.begin(RunMetrics.FINISH, name(t));
+            t.finish(ctx);
+            s.end(0, 0);
+        }
+    }
+
+    private static String name(ITransformer t) {
+        return t.getClass().getSimpleName();
+    }
+
+    private static String className(JarSource.Entry entry) {
+        String name = entry.getName();
+        return name.substring(0, name.length() - ".class".length());
+    }
+
+    private List<ClassNode> injectedClasses() throws Exception {
+        List<ClassNode> injected = new ArrayList<>();
 
         // 4.1) Инжектим класс-дешифратор строк (если используется)
         for (ITransformer t : ctx.getTransformers()) {
             if (t instanceof StringEncryptorTransformer s) {
-                allClasses.add(s.generateDecryptorNode());
+                injected.add(s.generateDecryptorNode());
                 // без break — даже если вы случайно поставите ещё один шифратор, он добавится
             }
         }
@@ -55,47 +297,30 @@ public class ObfuscatorCore {
             if (t instanceof BindingTransformer bt) {
                 ClassReader cr = new ClassReader(bt.getUtilClassBytes());
                 ClassNode bindingNode = new ClassNode();
-                cr.accept(bindingNode, 0);
-                allClasses.add(bindingNode);
+                cr.accept(bindingNode, ClassReader.EXPAND_FRAMES);
+                injected.add(bindingNode);
             }
         }
+
         // 4.3) Inject PasswordUtil
-// (тут у вас уже есть loop по ctx.getTransformers())
         for (ITransformer t : ctx.getTransformers()) {
             if (t instanceof PasswordTransformer pt) {
-                allClasses.add(pt.generatePasswordUtilNode());
+                injected.add(pt.generatePasswordUtilNode());
                 break;
             }
         }
 
-        // 4.3) Загружаем все .class из входного JAR
-        try (JarFile inJar = new JarFile(ctx.getInputJar().toFile())) {
-            Enumeration<JarEntry> ents = inJar.entries();
-            while (ents.hasMoreElements()) {
-                JarEntry entry = ents.nextElement();
-                if (!entry.getName().endsWith(".class")) continue;
-                try (InputStream is = inJar.getInputStream(entry)) {
-                    ClassReader cr = new ClassReader(is);
-                    ClassNode node = new ClassNode();
-                    cr.accept(node, ClassReader.EXPAND_FRAMES | ClassReader.SKIP_DEBUG);
-                    allClasses.add(node);
-                }
-            }
-        }
-
-        // 5) Применяем трансформеры ко всем классам
-        for (ClassNode cn : allClasses) {
-            for (ITransformer t : ctx.getTransformers()) {
-                t.transform(cn);
-            }
-        }
-
-        // 6) Завершаем трансформеры
+        // 4.3.1) Инжектим AntiDebugGuard (один на JAR)
         for (ITransformer t : ctx.getTransformers()) {
-            t.finish(ctx);
+            if (t instanceof AntiDebugTransformer a) {
+                injected.add(a.generateGuardNode());
+                break;
+            }
         }
+        return injected;
+    }
 
-        // 7) Обновляем Main-Class в манифесте, если его переименовал Renamer
+    private void remapMainClass(Manifest manifest) {
         for (ITransformer t : ctx.getTransformers()) {
             if (t instanceof RenamerTransformer ren) {
                 String orig = manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
@@ -111,39 +336,266 @@ public class ObfuscatorCore {
                 }
             }
         }
+    }
 
-        // 8) Записываем новый JAR
-        Files.createDirectories(ctx.getOutputJar().getParent());
-        try (JarOutputStream outJar = new JarOutputStream(
-                Files.newOutputStream(ctx.getOutputJar(),
-                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING),
-                manifest)) {
+    /**
+     * Классы обрабатываются окном из getPipelineDepth() задач: следующий класс читается
+     * только когда самый старый записан, поэтому память ограничена глубиной конвейера,
+     * а порядок записи совпадает с порядком во входном JAR. Если в цепочке есть
+     * не потокобезопасные трансформеры, классы идут строго по одному.
+     */
+    private void streamClasses(JarSource jar, JarSink outJar, Set<String> written) throws Exception {
+        boolean parallel = ctx.getParallelism() > 1
+                && ctx.getTransformers().stream().allMatch(ITransformer::isThreadSafe);
+        ExecutorService pool = parallel ? Executors.newFixedThreadPool(ctx.getParallelism()) : null;
+        Deque<Future<ClassOutput>> window = new ArrayDeque<>();
+        try {
+            for (JarSource.Entry entry : jar.entries()) {
+                if (!entry.isClass()) continue;
+                Callable<ClassOutput> job = () -> processClass(jar.read(entry));
 
-            Set<String> written = new HashSet<>();
-            // 8.1) Пишем все классы
-            for (ClassNode cn : allClasses) {
-                String entryName = cn.name + ".class";
-                if (written.add(entryName)) {
-                    outJar.putNextEntry(new JarEntry(entryName));
-                    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
-                    cn.accept(cw);
-                    outJar.write(cw.toByteArray());
-                    outJar.closeEntry();
+                if (pool == null) {
+                    ClassOutput out = job.call();
+                    writeClass(outJar, written, out.entryName(), out.bytes());
+                    continue;
+                }
+                window.add(pool.submit(job));
+                if (window.size() >= ctx.getPipelineDepth()) {
+                    ClassOutput out = await(window.poll());
+                    writeClass(outJar, written, out.entryName(), out.bytes());
                 }
             }
+            while (!window.isEmpty()) {
+                ClassOutput out = await(window.poll());
+                writeClass(outJar, written, out.entryName(), out.bytes());
+            }
+        } finally {
+            if (pool != null) pool.shutdownNow();
+        }
+    }
 
-            // 8.2) Копируем прочие ресурсы из входного JAR
-            try (JarFile inJar = new JarFile(ctx.getInputJar().toFile())) {
-                for (Enumeration<JarEntry> e = inJar.entries(); e.hasMoreElements();) {
-                    JarEntry entry = e.nextElement();
-                    String name = entry.getName();
-                    if (name.endsWith(".class") || name.equals(JarFile.MANIFEST_NAME)) continue;
-                    if (written.contains(name)) continue;
-                    outJar.putNextEntry(new JarEntry(name));
-                    outJar.write(inJar.getInputStream(entry).readAllBytes());
-                    outJar.closeEntry();
+    /** Полный путь одного класса в потоковом режиме, с учётом кэша */
+    private ClassOutput processClass(byte[] bytes) throws Exception {
+        checkCancelled();
+        readCount.incrementAndGet();
+        String key = cache != null ? cache.keyFor(bytes, mapping) : null;
+        if (key != null) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                transformedCount.incrementAndGet();
+                return cachedOutput(cached);
+            }
+        }
+        RunMetrics.Scope s = metrics.begin(RunMetrics.LOAD, null);
+        ClassNode cn = readClass(bytes);
+        s.endClass(cn.name, bytes.length);
+        for (ITransformer t : ctx.getTransformers()) {
+            transform(t, cn);
+        }
+        transformedCount.incrementAndGet();
+        ClassOutput out = new ClassOutput(cn.name + ".class", toBytes(cn));
+        if (key != null) cache.put(key, out.bytes());
+        return out;
+    }
+
+    private static ClassOutput cachedOutput(byte[] bytes) {
+        return new ClassOutput(new ClassReader(bytes).getClassName() + ".class", bytes);
+    }
+
+    private record ClassOutput(String entryName, byte[] bytes) { }
+
+    /** Класс входного JAR: либо ClassNode для трансформации, либо готовые байты из кэша */
+    private record ClassSlot(ClassNode node, String cacheKey, ClassOutput cached) { }
+
+    private static ClassNode readClass(byte[] bytes) {
+        ClassReader cr = new ClassReader(bytes);
+        ClassNode node = new ClassNode();
+        cr.accept(node, ClassReader.EXPAND_FRAMES | ClassReader.SKIP_DEBUG);
+        return node;
+    }
+
+    /** t.transform(cn) с замером; имя класса берётся до Renamer'а (он идёт последним) */
+    private void transform(ITransformer t, ClassNode cn) {
+        checkCancelled();
+        String original = cn.name;
+        RunMetrics.Scope s = metrics.begin(RunMetrics.TRANSFORM, name(t));
+        t.transform(cn);
+        s.endClass(original, 0);
+    }
+
+    private byte[] toBytes(ClassNode cn) {
+        checkCancelled();
+        RunMetrics.Scope s = metrics.begin(RunMetrics.FRAMES, null);
+        // Кадры пересчитываются (полный анализ потока данных + getCommonSuperClass) только
+        // если кто-то из трансформеров их не сохраняет; иначе пишутся прочитанные/вставленные
+        int flags = framesPreserved
+                ? ClassWriter.COMPUTE_MAXS
+                : ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS;
+        ClassWriter cw = new HierarchyClassWriter(flags);
+        cn.accept(cw);
+        byte[] bytes = cw.toByteArray();
+        s.endClass(originalName.apply(cn.name), bytes.length);
+        return bytes;
+    }
+
+    /** Общий супертип для кадров берётся из ClassHierarchy, а не через Class.forName */
+    private final class HierarchyClassWriter extends ClassWriter {
+        HierarchyClassWriter(int flags) {
+            super(flags);
+        }
+
+        @Override
+        protected String getCommonSuperClass(String type1, String type2) {
+            String common = ctx.getHierarchy().getCommonSuperClass(
+                    originalName.apply(type1), originalName.apply(type2));
+            return renamedName.apply(common);
+        }
+    }
+
+    private interface OutputBody {
+        void write(JarSink outJar) throws Exception;
+    }
+
+    /**
+     * JAR пишется во временный файл рядом с выходным и переносится на место только после
+     * успешного закрытия: при ошибке или отмене выходного JAR'а либо нет, либо остаётся
+     * прежний целиком.
+     */
+    private void writeOutput(Manifest manifest, OutputBody body) throws Exception {
+        Path target = ctx.getOutputJar().toAbsolutePath();
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, target.getFileName() + ".", ".part");
+        try {
+            try (JarSink sink = new JarSink(tmp)) {
+                sink.putManifest(manifest);
+                body.write(sink);
+            }
+            checkCancelled();
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Throwable e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    private void writeClass(JarSink outJar, Set<String> written,
+                            String entryName, byte[] bytes) throws Exception {
+        checkCancelled();
+        if (written.add(entryName)) {
+            RunMetrics.Scope s = metrics.begin(RunMetrics.WRITE, null);
+            outJar.put(entryName, bytes);
+            s.endClass(originalName.apply(entryName.substring(0, entryName.length() - ".class".length())), bytes.length);
+        }
+        writtenCount.incrementAndGet();
+        report(false);
+    }
+
+    /** Ресурсы не меняются, поэтому копируются сжатыми байтами, без распаковки */
+    private void copyResources(JarSource jar, JarSink outJar, Set<String> written) throws Exception {
+        RunMetrics.Scope s = metrics.begin(RunMetrics.WRITE, null);
+        int count = 0;
+        long bytes = 0;
+        for (JarSource.Entry entry : jar.entries()) {
+            String name = entry.getName();
+            if (entry.isClass() || name.equals(JarFile.MANIFEST_NAME)) continue;
+            if (written.contains(name)) continue;
+            checkCancelled();
+            outJar.copyRaw(jar, entry);
+            count++;
+            bytes += entry.getCompressedSize();
+        }
+        s.end(count, bytes);
+    }
+
+    /**
+     * Прогоняет цепочку трансформеров по всем классам.
+     * Подряд идущие потокобезопасные трансформеры образуют одну стадию, которая
+     * выполняется параллельно по классам; остальные стадии идут последовательно
+     * в исходном порядке классов. Каждый класс проходит трансформеры в том же
+     * порядке, что и раньше, так что результат не зависит от числа потоков.
+     */
+    private void transformAll(List<ClassNode> classes) throws Exception {
+        List<ITransformer> chain = ctx.getTransformers();
+        if (chain.isEmpty()) transformedCount.addAndGet(classes.size());
+        ForkJoinPool pool = ctx.getParallelism() > 1 ? new ForkJoinPool(ctx.getParallelism()) : null;
+        try {
+            int from = 0;
+            while (from < chain.size()) {
+                boolean safe = chain.get(from).isThreadSafe();
+                int to = from + 1;
+                while (to < chain.size() && chain.get(to).isThreadSafe() == safe) to++;
+                List<ITransformer> stage = chain.subList(from, to);
+                // класс считается трансформированным после последней стадии
+                boolean last = to == chain.size();
+
+                if (safe && pool != null) {
+                    transformParallel(pool, classes, stage, last);
+                } else {
+                    for (ClassNode cn : classes) {
+                        for (ITransformer t : stage) {
+                            transform(t, cn);
+                        }
+                        if (last) transformedOne();
+                    }
                 }
+                from = to;
             }
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    private void transformParallel(ForkJoinPool pool, List<ClassNode> classes,
+                                   List<ITransformer> stage, boolean last) throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>(classes.size());
+        for (ClassNode cn : classes) {
+            tasks.add(() -> {
+                for (ITransformer t : stage) {
+                    transform(t, cn);
+                }
+                if (last) transformedOne();
+                return null;
+            });
+        }
+        for (Future<Void> f : pool.invokeAll(tasks)) {
+            await(f);
+        }
+    }
+
+    private void transformedOne() {
+        transformedCount.incrementAndGet();
+        report(false);
+    }
+
+    private void checkCancelled() {
+        ctx.checkCancelled();
+    }
+
+    /** Сообщает ProgressListener'у о ходе прогона не чаще раза в INTERVAL_MILLIS (force — всегда) */
+    private void report(boolean force) {
+        ProgressListener listener = ctx.getProgressListener();
+        if (listener == null) return;
+        long now = System.nanoTime();
+        long last = lastReport.get();
+        if (!force && now - last < ProgressListener.INTERVAL_MILLIS * 1_000_000L) return;
+        if (!force && !lastReport.compareAndSet(last, now)) return;
+        lastReport.set(now);
+        listener.progress(new ProgressListener.Progress(totalCount.get(), readCount.get(), transformedCount.get(),
+                writtenCount.get(), (now - startNanos) / 1_000_000L));
+    }
+
+    private static <T> T await(Future<T> f) throws Exception {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            // пробрасываем исходную ошибку трансформера, а не обёртку пула
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
         }
     }
 }
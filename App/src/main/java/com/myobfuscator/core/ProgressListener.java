@@ -0,0 +1,30 @@
+package com.myobfuscator.core;
+
+/**
+ * Ход прогона ObfuscatorCore (ctx.setProgressListener). Вызывается не чаще раза в
+ * INTERVAL_MILLIS и ещё раз в конце, из того потока ядра, который сделал очередной шаг,
+ * поэтому реализация должна быть потокобезопасной и быстрой (GUI — через invokeLater
+ * или SwingWorker.publish). Отмена — ObfuscatorCore.cancel().
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    long INTERVAL_MILLIS = 100;
+
+    void progress(Progress progress);
+
+    /**
+     * Снимок счётчиков. total — классы входного JAR плюс инжектированные; каждый класс
+     * проходит read → transformed (все трансформеры или кэш) → written.
+     */
+    record Progress(int total, int read, int transformed, int written, long elapsedMillis) {
+        /** Доля выполненной работы 0..1: три шага на класс */
+        public double fraction() {
+            return total == 0 ? 1 : (read + transformed + written) / (3.0 * total);
+        }
+
+        /** Пропускная способность: классов через трансформеры в секунду */
+        public double classesPerSecond() {
+            return elapsedMillis == 0 ? 0 : transformed * 1000.0 / elapsedMillis;
+        }
+    }
+}
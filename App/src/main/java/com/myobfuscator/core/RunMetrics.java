@@ -0,0 +1,261 @@
+package com.myobfuscator.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Время и аллокации по фазам прогона ObfuscatorCore: чтение манифеста, иерархия,
+ * init/transform/finish каждого трансформера, загрузка классов, ClassWriter (кадры),
+ * запись JAR'а. Каждая фаза — JFR-событие com.myobfuscator.Phase, каждый класс на
+ * каждом шаге — com.myobfuscator.Class, так что их видно в JDK Mission Control рядом с GC.
+ * Итог — отчёт JSON или CSV (ctx.setMetricsReport) со slowest N классами.
+ *
+ * Сбор включается, только если нужен отчёт или JFR-запись с этими событиями уже идёт;
+ * иначе begin() возвращает общий пустой Scope и замеры ничего не стоят.
+ * Аллокации — байты, выделенные текущим потоком (com.sun.management.ThreadMXBean).
+ */
+public final class RunMetrics {
+    public static final String MANIFEST = "manifest";
+    public static final String HIERARCHY = "hierarchy";
+    public static final String INIT = "init";
+    public static final String INJECT = "inject";
+    public static final String LOAD = "load";
+    public static final String TRANSFORM = "transform";
+    public static final String FINISH = "finish";
+    public static final String FRAMES = "frames";
+    public static final String WRITE = "write";
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    @Name("com.myobfuscator.Phase")
+    @Label("Obfuscation Phase")
+    @Category("Obfuscator")
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Transformer")
+        String transformer;
+        @Label("Classes")
+        int classes;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.myobfuscator.Class")
+    @Label("Class Step")
+    @Description("Один класс на одном шаге: трансформер, загрузка или ClassWriter")
+    @Category("Obfuscator")
+    static final class ClassEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Transformer")
+        String transformer;
+        @Label("Class")
+        String className;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    /** Замер одного шага; end() вызывается в том же потоке, что и begin() */
+    public interface Scope {
+        void end(int classes, long bytes);
+        /** Шаг одного класса: ещё и в статистику класса для slowest N */
+        void endClass(String className, long bytes);
+    }
+
+    private static final Scope NONE = new Scope() {
+        @Override public void end(int classes, long bytes) { }
+        @Override public void endClass(String className, long bytes) { }
+    };
+
+    private static final class Counter {
+        final int order;
+        final String phase;
+        final String transformer;
+        final LongAdder nanos = new LongAdder();
+        final LongAdder allocated = new LongAdder();
+        final LongAdder classes = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        Counter(int order, String phase, String transformer) {
+            this.order = order;
+            this.phase = phase;
+            this.transformer = transformer;
+        }
+    }
+
+    private static final class ClassStats {
+        final LongAdder nanos = new LongAdder();
+        final LongAdder allocated = new LongAdder();
+    }
+
+    private final boolean enabled;
+    private final boolean jfr;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, ClassStats> classes = new ConcurrentHashMap<>();
+    private final AtomicInteger order = new AtomicInteger();
+    private final long start = System.nanoTime();
+
+    private RunMetrics(boolean enabled, boolean jfr) {
+        this.enabled = enabled;
+        this.jfr = jfr;
+    }
+
+    /**
+     * Метрики прогона: сбор включён, если нужен отчёт или идёт JFR-запись. Первое событие
+     * поднимает метаданные JFR (сотни миллисекунд), поэтому без записи события не создаются.
+     */
+    static RunMetrics create(boolean report) {
+        boolean jfr = FlightRecorder.isInitialized()
+                && (new PhaseEvent().isEnabled() || new ClassEvent().isEnabled());
+        return new RunMetrics(report || jfr, jfr);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** transformer — простое имя класса трансформера или null для фаз ядра */
+    public Scope begin(String phase, String transformer) {
+        if (!enabled) return NONE;
+        long t0 = System.nanoTime();
+        long a0 = allocated();
+        return new Scope() {
+            @Override
+            public void end(int n, long bytes) {
+                record(phase, transformer, System.nanoTime() - t0, allocated() - a0, n, bytes);
+                if (!jfr) return;
+                PhaseEvent e = new PhaseEvent();
+                if (e.shouldCommit()) {
+                    e.phase = phase;
+                    e.transformer = transformer;
+                    e.classes = n;
+                    e.bytes = bytes;
+                    e.commit();
+                }
+            }
+
+            @Override
+            public void endClass(String className, long bytes) {
+                long nanos = System.nanoTime() - t0;
+                long alloc = allocated() - a0;
+                record(phase, transformer, nanos, alloc, 1, bytes);
+                ClassStats s = classes.computeIfAbsent(className, k -> new ClassStats());
+                s.nanos.add(nanos);
+                s.allocated.add(Math.max(0, alloc));
+                if (!jfr) return;
+                ClassEvent e = new ClassEvent();
+                if (e.shouldCommit()) {
+                    e.phase = phase;
+                    e.transformer = transformer;
+                    e.className = className;
+                    e.bytes = bytes;
+                    e.commit();
+                }
+            }
+        };
+    }
+
+    private void record(String phase, String transformer, long nanos, long alloc, int n, long bytes) {
+        String key = transformer == null ? phase : phase + "|" + transformer;
+        Counter c = counters.computeIfAbsent(key, k -> new Counter(order.getAndIncrement(), phase, transformer));
+        c.nanos.add(nanos);
+        c.allocated.add(Math.max(0, alloc));
+        c.classes.add(n);
+        c.bytes.add(bytes);
+    }
+
+    private static long allocated() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+                && t.isThreadAllocatedMemorySupported()) {
+            if (!t.isThreadAllocatedMemoryEnabled()) t.setThreadAllocatedMemoryEnabled(true);
+            return t;
+        }
+        return null;
+    }
+
+    /**
+     * Пишет отчёт: JSON или, для файла *.csv, CSV. Строки фаз идут в порядке первого
+     * появления; фазы, выполнявшиеся параллельно, суммируют время всех потоков.
+     */
+    void write(Path file, Path input, int topClasses) throws IOException {
+        List<Counter> phases = new ArrayList<>(counters.values());
+        phases.sort(Comparator.comparingInt(c -> c.order));
+        List<Map.Entry<String, ClassStats>> slowest = new ArrayList<>(classes.entrySet());
+        slowest.sort(Comparator.comparingLong((Map.Entry<String, ClassStats> e) -> e.getValue().nanos.sum()).reversed());
+        if (slowest.size() > topClasses) slowest = slowest.subList(0, topClasses);
+        long total = System.nanoTime() - start;
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            if (file.getFileName().toString().endsWith(".csv")) {
+                out.println("kind,phase,transformer,class,millis,allocated_bytes,classes,bytes");
+                out.println("total,,,," + millis(total) + ",,,");
+                for (Counter c : phases) {
+                    out.println("phase," + c.phase + "," + (c.transformer != null ? c.transformer : "") + ",,"
+                            + millis(c.nanos.sum()) + "," + c.allocated.sum() + "," + c.classes.sum() + "," + c.bytes.sum());
+                }
+                for (Map.Entry<String, ClassStats> e : slowest) {
+                    out.println("class,,," + e.getKey() + "," + millis(e.getValue().nanos.sum()) + ","
+                            + e.getValue().allocated.sum() + ",,");
+                }
+                return;
+            }
+            out.println("{");
+            out.println("  \"input\": \"" + input.toString().replace("\\", "\\\\").replace("\"", "\\\"") + "\",");
+            out.println("  \"totalMillis\": " + millis(total) + ",");
+            out.println("  \"phases\": [");
+            for (int i = 0; i < phases.size(); i++) {
+                Counter c = phases.get(i);
+                out.println("    {\"phase\": \"" + c.phase + "\""
+                        + (c.transformer != null ? ", \"transformer\": \"" + c.transformer + "\"" : "")
+                        + ", \"millis\": " + millis(c.nanos.sum())
+                        + ", \"allocatedBytes\": " + c.allocated.sum()
+                        + ", \"classes\": " + c.classes.sum()
+                        + ", \"bytes\": " + c.bytes.sum() + "}" + (i + 1 < phases.size() ? "," : ""));
+            }
+            out.println("  ],");
+            out.println("  \"slowestClasses\": [");
+            for (int i = 0; i < slowest.size(); i++) {
+                Map.Entry<String, ClassStats> e = slowest.get(i);
+                out.println("    {\"class\": \"" + e.getKey() + "\""
+                        + ", \"millis\": " + millis(e.getValue().nanos.sum())
+                        + ", \"allocatedBytes\": " + e.getValue().allocated.sum() + "}"
+                        + (i + 1 < slowest.size() ? "," : ""));
+            }
+            out.println("  ]");
+            out.println("}");
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,212 @@
+package com.myobfuscator.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Выходной JAR. Пишет ZIP сам, чтобы неизменённые ресурсы входного JAR можно было
+ * скопировать сжатыми байтами (copyRaw) — с исходными CRC, размерами и временем.
+ * Новые записи получают фиксированное время, чтобы повторный прогон давал тот же JAR.
+ */
+public final class JarSink implements Closeable {
+    /** 1980-02-01 00:00 в формате DOS — то же, что у воспроизводимых сборок Gradle */
+    private static final int FIXED_DOS_TIME = 0x00410000;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+
+    private final FileChannel out;
+    private final ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<CentralRecord> central = new ArrayList<>();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private long offset;
+
+    private record CentralRecord(byte[] name, int flags, int method, int dosTime, int crc,
+                                 long compressedSize, long size, long localHeaderOffset) { }
+
+    public JarSink(Path path) throws IOException {
+        this.out = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /** Манифест всегда первая запись, как у JarOutputStream */
+    public void putManifest(Manifest manifest) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        manifest.write(bos);
+        put(JarFile.MANIFEST_NAME, bos.toByteArray());
+    }
+
+    /** Новая запись: данные сжимаются deflate'ом (каталоги пишутся как STORED) */
+    public void put(String name, byte[] bytes) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if (name.endsWith("/") || bytes.length == 0) {
+            writeEntry(name, 0, FIXED_DOS_TIME, (int) crc.getValue(), bytes, bytes.length, 0);
+            return;
+        }
+        byte[] packed = deflate(bytes);
+        writeEntry(name, 8, FIXED_DOS_TIME, (int) crc.getValue(), packed, bytes.length, 0);
+    }
+
+    /** Копия записи входного JAR без распаковки */
+    public void copyRaw(JarSource source, JarSource.Entry e) throws IOException {
+        if (e.getCompressedSize() >= 0xFFFFFFFFL || e.getSize() >= 0xFFFFFFFFL) {
+            throw new IOException("Записи больше 4 ГБ не поддерживаются: " + e.getName());
+        }
+        int flags = (e.getFlags() & ~DATA_DESCRIPTOR_FLAG) | UTF8_FLAG;
+        byte[] name = e.getName().getBytes(StandardCharsets.UTF_8);
+        central.add(new CentralRecord(name, flags, e.getMethod(), e.getDosTime(), e.getCrc(),
+                e.getCompressedSize(), e.getSize(), offset));
+        writeLocalHeader(name, flags, e.getMethod(), e.getDosTime(), e.getCrc(),
+                e.getCompressedSize(), e.getSize());
+        flush();
+        source.transferRaw(e, out);
+        offset += e.getCompressedSize();
+    }
+
+    private void writeEntry(String entryName, int method, int dosTime, int crc,
+                            byte[] data, long size, int extraFlags) throws IOException {
+        byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+        int flags = UTF8_FLAG | extraFlags;
+        central.add(new CentralRecord(name, flags, method, dosTime, crc, data.length, size, offset));
+        writeLocalHeader(name, flags, method, dosTime, crc, data.length, size);
+        write(data);
+    }
+
+    private void writeLocalHeader(byte[] name, int flags, int method, int dosTime, int crc,
+                                  long csize, long size) throws IOException {
+        ensure(30 + name.length);
+        buf.putInt(0x04034b50);
+        buf.putShort((short) (method == 0 ? 10 : 20));
+        buf.putShort((short) flags);
+        buf.putShort((short) method);
+        buf.putInt(dosTime);
+        buf.putInt(crc);
+        buf.putInt((int) csize);
+        buf.putInt((int) size);
+        buf.putShort((short) name.length);
+        buf.putShort((short) 0);
+        buf.put(name);
+        offset += 30 + name.length;
+    }
+
+    private byte[] deflate(byte[] bytes) {
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, bytes.length / 2));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            bos.write(chunk, 0, n);
+        }
+        return bos.toByteArray();
+    }
+
+    private void write(byte[] data) throws IOException {
+        if (data.length > buf.capacity()) {
+            flush();
+            ByteBuffer wrap = ByteBuffer.wrap(data);
+            while (wrap.hasRemaining()) out.write(wrap);
+        } else {
+            ensure(data.length);
+            buf.put(data);
+        }
+        offset += data.length;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buf.remaining() < n) flush();
+    }
+
+    private void flush() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) out.write(buf);
+        buf.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeCentralDirectory();
+            flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long cenStart = offset;
+        for (CentralRecord r : central) {
+            if (r.localHeaderOffset() > 0xFFFFFFFFL) {
+                throw new IOException("Выходной JAR больше 4 ГБ не поддерживается");
+            }
+            ensure(46 + r.name().length);
+            buf.putInt(0x02014b50);
+            buf.putShort((short) 20);
+            buf.putShort((short) (r.method() == 0 ? 10 : 20));
+            buf.putShort((short) r.flags());
+            buf.putShort((short) r.method());
+            buf.putInt(r.dosTime());
+            buf.putInt(r.crc());
+            buf.putInt((int) r.compressedSize());
+            buf.putInt((int) r.size());
+            buf.putShort((short) r.name().length);
+            buf.putShort((short) 0);
+            buf.putShort((short) 0);
+            buf.putShort((short) 0);
+            buf.putShort((short) 0);
+            buf.putInt(0);
+            buf.putInt((int) r.localHeaderOffset());
+            buf.put(r.name());
+            offset += 46 + r.name().length;
+        }
+        long cenSize = offset - cenStart;
+        int count = central.size();
+
+        if (count >= 0xFFFF) {
+            // Zip64 end record + locator: в обычном EOCD на число записей только 16 бит
+            long z64 = offset;
+            ensure(56 + 20);
+            buf.putInt(0x06064b50);
+            buf.putLong(44);
+            buf.putShort((short) 45);
+            buf.putShort((short) 45);
+            buf.putInt(0);
+            buf.putInt(0);
+            buf.putLong(count);
+            buf.putLong(count);
+            buf.putLong(cenSize);
+            buf.putLong(cenStart);
+            buf.putInt(0x07064b50);
+            buf.putInt(0);
+            buf.putLong(z64);
+            buf.putInt(1);
+            offset += 56 + 20;
+        }
+
+        ensure(22);
+        buf.putInt(0x06054b50);
+        buf.putShort((short) 0);
+        buf.putShort((short) 0);
+        buf.putShort((short) Math.min(count, 0xFFFF));
+        buf.putShort((short) Math.min(count, 0xFFFF));
+        buf.putInt((int) cenSize);
+        buf.putInt((int) cenStart);
+        buf.putShort((short) 0);
+        offset += 22;
+    }
+}
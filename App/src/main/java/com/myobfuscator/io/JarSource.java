@@ -0,0 +1,294 @@
+package com.myobfuscator.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Входной JAR, открытый один раз на весь прогон.
+ * Central directory разбирается сразу; данные записей читаются позиционными чтениями
+ * FileChannel (read(buf, position)), которые не трогают общую позицию канала, поэтому
+ * read() можно звать из нескольких потоков, а размер файла не ограничен 2 ГБ.
+ * Сжатые данные записи можно отдать в JarSink как есть, без inflate/deflate.
+ */
+public final class JarSource implements Closeable {
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOC_SIG = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOC_SIZE = 20;
+    private static final int ZIP64_END_SIZE = 56;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<Entry> entries;
+    private final Map<String, Entry> byName;
+
+    /** Запись central directory */
+    public static final class Entry {
+        private final String name;
+        private final int flags;
+        private final int method;
+        private final int dosTime;
+        private final int crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+        private volatile long dataOffset = -1;
+
+        private Entry(String name, int flags, int method, int dosTime, int crc,
+                      long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() { return name; }
+        public int getFlags() { return flags; }
+        public int getMethod() { return method; }
+        /** Время в формате DOS: (date << 16) | time */
+        public int getDosTime() { return dosTime; }
+        public int getCrc() { return crc; }
+        public long getCompressedSize() { return compressedSize; }
+        public long getSize() { return size; }
+        public boolean isDirectory() { return name.endsWith("/"); }
+        public boolean isClass() { return name.endsWith(".class"); }
+    }
+
+    private JarSource(Path path, FileChannel channel, List<Entry> entries) {
+        this.path = path;
+        this.channel = channel;
+        this.entries = Collections.unmodifiableList(entries);
+        this.byName = new HashMap<>();
+        for (Entry e : entries) byName.putIfAbsent(e.name, e);
+    }
+
+    public static JarSource open(Path path) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new JarSource(path, ch, readCentralDirectory(path, ch));
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() { return path; }
+
+    /** Все записи в порядке central directory */
+    public List<Entry> entries() { return entries; }
+
+    public Entry getEntry(String name) { return byName.get(name); }
+
+    /** Манифест входного JAR или null, если его нет */
+    public Manifest getManifest() throws IOException {
+        Entry e = getEntry(JarFile.MANIFEST_NAME);
+        if (e == null) return null;
+        return new Manifest(new ByteArrayInputStream(read(e)));
+    }
+
+    /** Распакованное содержимое записи */
+    public byte[] read(Entry e) throws IOException {
+        ByteBuffer raw = rawData(e);
+        if (e.method == 0) {
+            byte[] out = new byte[raw.remaining()];
+            raw.get(out);
+            return out;
+        }
+        if (e.size > Integer.MAX_VALUE - 8) {
+            throw new ZipException("Запись больше 2 ГБ не читается в память: " + e.name);
+        }
+        if (e.method != 8) {
+            throw new ZipException("Неподдерживаемый метод сжатия " + e.method + ": " + e.name);
+        }
+        Inflater inf = new Inflater(true);
+        try {
+            inf.setInput(raw);
+            byte[] out = new byte[(int) e.size];
+            int n = 0;
+            while (n < out.length) {
+                int r = inf.inflate(out, n, out.length - n);
+                if (r == 0 && (inf.finished() || inf.needsInput() || inf.needsDictionary())) break;
+                n += r;
+            }
+            if (n != out.length) throw new ZipException("Повреждённая запись: " + e.name);
+            return out;
+        } catch (DataFormatException ex) {
+            throw new ZipException("Повреждённая запись " + e.name + ": " + ex.getMessage());
+        } finally {
+            inf.end();
+        }
+    }
+
+    /** Сжатые данные записи (позиционное чтение в буфер кучи) */
+    public ByteBuffer rawData(Entry e) throws IOException {
+        if (e.compressedSize > Integer.MAX_VALUE - 8) {
+            throw new ZipException("Запись больше 2 ГБ не читается в память: " + e.name);
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) e.compressedSize);
+        readFully(channel, buf, dataOffset(e));
+        return buf.flip();
+    }
+
+    /** Переливает сжатые данные записи в канал средствами ОС (transferTo) */
+    void transferRaw(Entry e, WritableByteChannel target) throws IOException {
+        long pos = dataOffset(e);
+        long left = e.compressedSize;
+        while (left > 0) {
+            long n = channel.transferTo(pos, left, target);
+            if (n <= 0) throw new EOFException("JAR обрезан: " + e.name);
+            pos += n;
+            left -= n;
+        }
+    }
+
+    /** Начало данных: длина extra в локальном заголовке может отличаться от central directory */
+    private long dataOffset(Entry e) throws IOException {
+        long off = e.dataOffset;
+        if (off < 0) {
+            ByteBuffer loc = read(channel, e.localHeaderOffset, 30);
+            if (loc.getInt(0) != LOC_SIG) {
+                throw new ZipException("Битый локальный заголовок: " + e.name);
+            }
+            int nameLen = Short.toUnsignedInt(loc.getShort(26));
+            int extraLen = Short.toUnsignedInt(loc.getShort(28));
+            off = e.localHeaderOffset + 30L + nameLen + extraLen;
+            e.dataOffset = off;
+        }
+        return off;
+    }
+
+    private static List<Entry> readCentralDirectory(Path path, FileChannel ch) throws IOException {
+        long fileSize = ch.size();
+        // EOCD — в последних 22 + 65535 (комментарий) байтах; захватываем и zip64 locator перед ним
+        int tailLen = (int) Math.min(fileSize, END_SIZE + 0xFFFF + ZIP64_LOC_SIZE);
+        long tailStart = fileSize - tailLen;
+        ByteBuffer tail = read(ch, tailStart, tailLen);
+        int end = findEnd(tail);
+        if (end < 0) throw new ZipException("Не найден конец central directory: " + path);
+
+        long total = Short.toUnsignedInt(tail.getShort(end + 10));
+        long cenSize = Integer.toUnsignedLong(tail.getInt(end + 12));
+        long cenOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+        int locator = end - ZIP64_LOC_SIZE;
+        if (locator >= 0 && tail.getInt(locator) == ZIP64_LOC_SIG) {
+            // Zip64: реальные значения лежат в zip64 end record
+            long z64 = tail.getLong(locator + 8);
+            ByteBuffer rec = z64 >= 0 && z64 + ZIP64_END_SIZE <= fileSize ? read(ch, z64, ZIP64_END_SIZE) : null;
+            if (rec == null || rec.getInt(0) != ZIP64_END_SIG) {
+                throw new ZipException("Повреждённый zip64 end record: " + path);
+            }
+            total = rec.getLong(32);
+            cenSize = rec.getLong(40);
+            cenOffset = rec.getLong(48);
+        }
+        // без zip64 locator значения EOCD считаются настоящими, даже если равны 0xFFFF —
+        // так же поступает java.util.zip: ровно 65535 записей — корректный обычный ZIP
+        if (cenOffset + cenSize > fileSize || cenSize > Integer.MAX_VALUE - 8) {
+            throw new ZipException("Битый central directory: " + path);
+        }
+
+        ByteBuffer buf = read(ch, cenOffset, (int) cenSize);
+        List<Entry> list = new ArrayList<>((int) Math.min(total, 1 << 16));
+        int p = 0;
+        for (long i = 0; i < total; i++) {
+            if (p + 46 > buf.limit() || buf.getInt(p) != CEN_SIG) {
+                throw new ZipException("Битый central directory: " + path);
+            }
+            int flags = Short.toUnsignedInt(buf.getShort(p + 8));
+            int method = Short.toUnsignedInt(buf.getShort(p + 10));
+            int dosTime = buf.getInt(p + 12);
+            int crc = buf.getInt(p + 16);
+            long csize = Integer.toUnsignedLong(buf.getInt(p + 20));
+            long size = Integer.toUnsignedLong(buf.getInt(p + 24));
+            int nameLen = Short.toUnsignedInt(buf.getShort(p + 28));
+            int extraLen = Short.toUnsignedInt(buf.getShort(p + 30));
+            int commentLen = Short.toUnsignedInt(buf.getShort(p + 32));
+            long locOffset = Integer.toUnsignedLong(buf.getInt(p + 42));
+            if (p + 46 + nameLen + extraLen + commentLen > buf.limit()) {
+                throw new ZipException("Битый central directory: " + path);
+            }
+
+            byte[] nameBytes = new byte[nameLen];
+            buf.get(p + 46, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            if (size == 0xFFFFFFFFL || csize == 0xFFFFFFFFL || locOffset == 0xFFFFFFFFL) {
+                // zip64 extra: 8-байтовые size, csize, offset — только те, что в заголовке 0xFFFFFFFF
+                int x = p + 46 + nameLen;
+                int xEnd = x + extraLen;
+                boolean found = false;
+                while (x + 4 <= xEnd) {
+                    int id = Short.toUnsignedInt(buf.getShort(x));
+                    int len = Short.toUnsignedInt(buf.getShort(x + 2));
+                    if (id == ZIP64_EXTRA) {
+                        int q = x + 4;
+                        int qEnd = Math.min(q + len, xEnd);
+                        if (size == 0xFFFFFFFFL && q + 8 <= qEnd) { size = buf.getLong(q); q += 8; }
+                        if (csize == 0xFFFFFFFFL && q + 8 <= qEnd) { csize = buf.getLong(q); q += 8; }
+                        if (locOffset == 0xFFFFFFFFL && q + 8 <= qEnd) { locOffset = buf.getLong(q); }
+                        found = true;
+                        break;
+                    }
+                    x += 4 + len;
+                }
+                if (!found) throw new ZipException("Нет zip64 extra у записи " + name + ": " + path);
+            }
+            if (locOffset + 30 > fileSize || size < 0 || csize < 0) {
+                throw new ZipException("Битая запись central directory: " + name);
+            }
+            list.add(new Entry(name, flags, method, dosTime, crc, csize, size, locOffset));
+            p += 46 + nameLen + extraLen + commentLen;
+        }
+        return list;
+    }
+
+    private static int findEnd(ByteBuffer buf) {
+        int min = Math.max(0, buf.limit() - END_SIZE - 0xFFFF);
+        for (int i = buf.limit() - END_SIZE; i >= min; i--) {
+            if (buf.getInt(i) == END_SIG) return i;
+        }
+        return -1;
+    }
+
+    private static ByteBuffer read(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(ch, buf, position);
+        return buf.flip();
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position);
+            if (n < 0) throw new EOFException("JAR обрезан");
+            position += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
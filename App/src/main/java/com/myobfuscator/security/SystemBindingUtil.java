@@ -58,10 +58,10 @@ public class SystemBindingUtil {
             if (Files.notExists(TIME_FILE)) {
                 Files.createDirectories(CONFIG_DIR);
                 Instant now = Instant.now();
-                Files.writeString(TIME_FILE, now.toString(), StandardOpenOption.CREATE_NEW);
+                Files.write(TIME_FILE, now.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
                 return now;
             } else {
-                return Instant.parse(Files.readString(TIME_FILE).trim());
+                return Instant.parse(new String(Files.readAllBytes(TIME_FILE), StandardCharsets.UTF_8).trim());
             }
         } catch (Exception e) {
             return Instant.EPOCH;
@@ -79,11 +79,11 @@ public class SystemBindingUtil {
             if (Files.notExists(cfg)) {
                 // первый запуск — запоминаем ту папку, откуда запустили JAR
                 String cwd = new File(".").getCanonicalPath();
-                Files.writeString(cfg, cwd, StandardOpenOption.CREATE_NEW);
+                Files.write(cfg, cwd.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
                 return cwd;
             } else {
                 // дальнейшие запуски — просто читаем
-                return Files.readString(cfg).trim();
+                return new String(Files.readAllBytes(cfg), StandardCharsets.UTF_8).trim();
             }
         } catch (Exception e) {
             return "";
@@ -138,7 +138,7 @@ public class SystemBindingUtil {
                 String pwd = Long.toHexString(new SecureRandom().nextLong());
                 // или попросить пользователя ввести: Console.readPassword()
                 String salted = PasswordUtil.generateSaltedHash(pwd);
-                Files.writeString(PASS_FILE, salted, StandardOpenOption.CREATE_NEW);
+                Files.write(PASS_FILE, salted.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
                 System.out.println("Your password is: " + pwd);
             }
         } catch (Exception e) {
@@ -149,7 +149,7 @@ public class SystemBindingUtil {
     /** Проверяет пароль при запуске: */
     public static void checkPassword() {
         try {
-            String stored = Files.readString(PASS_FILE).trim();
+            String stored = new String(Files.readAllBytes(PASS_FILE), StandardCharsets.UTF_8).trim();
             Console console = System.console();
             if (console == null) throw new IllegalStateException("No console");
             char[] input = console.readPassword("Enter application password: ");
@@ -1,57 +1,48 @@
 package com.myobfuscator.transformer;
 
 import com.myobfuscator.core.ITransformer;
+import com.myobfuscator.core.MethodProfile;
 import com.myobfuscator.core.ObfuscationContext;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 
-import javax.crypto.Cipher;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Проверка на отладчик в начале каждого метода. Сама проверка (разбор флагов JVM)
+ * живёт в инжектируемом AntiDebugGuard и выполняется один раз; в методы вставляется
+ * только чтение его флага: static final DEBUGGED или, при повторных проверках, volatile debugged.
+ * Горячие методы из профиля (ctx.getProfile()) не трогаются.
+ */
 public class AntiDebugTransformer implements ITransformer {
+    private static final String GUARD = "com/myobfuscator/util/AntiDebugGuard";
 
-    private Cipher encryptCipher;      // будет null, если StringEncryptor не включён
-    private String encryptedArg;       // Base64(AES(literal)) или null
-    private final String plainArg = "-agentlib:jdwp";  // запасная константа
-    private boolean useDecryption;     // true, только если encryptCipher != null
-    private String decryptorOwner;
+    private final long recheckMillis;  // 0 — вердикт вычисляется один раз при загрузке guard'а
+    private MethodProfile profile;
+    private final AtomicInteger skippedHot = new AtomicInteger();
+
+    public AntiDebugTransformer() {
+        this(0);
+    }
+
+    /** recheckMillis > 0 — guard перепроверяет флаги JVM с этим периодом в фоновом потоке */
+    public AntiDebugTransformer(long recheckMillis) {
+        this.recheckMillis = Math.max(0, recheckMillis);
+    }
 
     @Override
     public void init(ObfuscationContext ctx) throws Exception {
-        // Пытаемся найти StringEncryptorTransformer
-        for (ITransformer t : ctx.getTransformers()) {
-            if (t instanceof StringEncryptorTransformer s) {
-                this.encryptCipher = s.getEncryptCipher();
-                break;
-            }
-        }
-        // Если нашли шифратор — шифруем и включаем decryption
-        if (encryptCipher != null) {
-            byte[] raw = plainArg.getBytes(StandardCharsets.UTF_8);
-            byte[] enc = encryptCipher.doFinal(raw);
-            this.encryptedArg   = Base64.getEncoder().encodeToString(enc);
-            this.useDecryption  = true;
-        } else {
-            // Без шифрования — будем вставлять plainArg
-            this.useDecryption  = false;
-        }
-
-        // 2) Вычислить, под каким именем теперь будет StringDecryptor
-        String original = "com/myobfuscator/util/StringDecryptor";
-        decryptorOwner = original;
-        for (ITransformer t : ctx.getTransformers()) {
-            if (t instanceof RenamerTransformer ren) {
-                String mapped = ren.getClassMap().get(original);
-                if (mapped != null) decryptorOwner = mapped;
-                break;
-            }
-        }
+        // Renamer идёт последним, поэтому здесь все имена ещё исходные
+        profile = ctx.getProfile();
     }
 
     @Override
     public void transform(ClassNode classNode) {
-        if (classNode.name.equals(decryptorOwner)
+        if (classNode.name.equals(GUARD)
+                || classNode.name.equals(StringEncryptorTransformer.DECRYPTOR)
                 || classNode.name.equals("com/myobfuscator/security/SystemBindingUtil")) {
             return;
         }
@@ -59,62 +50,79 @@ public class AntiDebugTransformer implements ITransformer {
         for (MethodNode m : classNode.methods) {
             if (m.instructions == null || m.instructions.size() == 0) continue;
             if ((m.access & (Opcodes.ACC_ABSTRACT|Opcodes.ACC_NATIVE)) != 0) continue;
+            if (profile.isHot(classNode.name, m.name, m.desc)) {
+                skippedHot.incrementAndGet();
+                continue;
+            }
 
-            InsnList check = buildAntiDebugBlock();
-            m.instructions.insert(m.instructions.getFirst(), check);
+            // кадр для метки продолжения: состояние на входе в метод, если там ещё нет своего
+            FrameNode entry = Frames.needed(classNode) && !Frames.framedAt(m.instructions.getFirst())
+                    ? Frames.entry(classNode.name, m)
+                    : null;
+            m.instructions.insert(buildAntiDebugBlock(entry));
         }
     }
 
     @Override
-    public void finish(ObfuscationContext ctx) { /* no-op */ }
+    public void finish(ObfuscationContext ctx) {
+        if (!profile.isEmpty()) {
+            System.out.println("[AntiDebug] skipped " + skippedHot.get() + " hot methods");
+        }
+    }
 
-    private InsnList buildAntiDebugBlock() {
-        InsnList list = new InsnList();
-        LabelNode ok = new LabelNode();
+    @Override
+    public boolean isThreadSafe() {
+        // после init состояние только читается, блок проверки строится заново на каждый метод
+        return true;
+    }
 
-        // --- общий код проверки JVM-флагов ---
-        list.add(new MethodInsnNode(
-                Opcodes.INVOKESTATIC,
-                "java/lang/management/ManagementFactory",
-                "getRuntimeMXBean",
-                "()Ljava/lang/management/RuntimeMXBean;",
-                false));
-        list.add(new MethodInsnNode(
-                Opcodes.INVOKEINTERFACE,
-                "java/lang/management/RuntimeMXBean",
-                "getInputArguments",
-                "()Ljava/util/List;",
-                true));
-        list.add(new MethodInsnNode(
-                Opcodes.INVOKEINTERFACE,
-                "java/util/List",
-                "toString",
-                "()Ljava/lang/String;",
-                true));
-
-        // --- Ветвление вставки литерала ---
-        if (useDecryption) {
-            // зашифрованный Base64 + дешифровка
-            list.add(new LdcInsnNode(encryptedArg));
-            list.add(new MethodInsnNode(
-                    Opcodes.INVOKESTATIC,
-                    decryptorOwner,
-                    "decryptBase64",
-                    "(Ljava/lang/String;)Ljava/lang/String;",
-                    false
-            ));
-        } else {
-            // простой литерал
-            list.add(new LdcInsnNode(plainArg));
+    @Override
+    public boolean preservesFrames() {
+        // метка после проверки получает кадр входа в метод
+        return true;
+    }
+
+    @Override
+    public String cacheFingerprint() {
+        return "recheck=" + recheckMillis;
+    }
+
+    /**
+     * ClassNode для AntiDebugGuard с подставленным интервалом. Патчится до трансформаций:
+     * дальше его литералы может зашифровать StringEncryptor.
+     */
+    public ClassNode generateGuardNode() throws IOException {
+        try (InputStream template = getClass().getResourceAsStream("/templates/AntiDebugGuard.class")) {
+            if (template == null) {
+                throw new IllegalStateException("Не найден шаблон AntiDebugGuard.class в /templates");
+            }
+            ClassNode cn = new ClassNode();
+            new ClassReader(template).accept(cn, ClassReader.EXPAND_FRAMES);
+            // guard попадает в каждый JAR с --anti: под Java 8 он должен грузиться на любой JVM
+            if ((cn.version & 0xFFFF) > Opcodes.V1_8) {
+                throw new IllegalStateException("Шаблон AntiDebugGuard.class собран под class file "
+                        + (cn.version & 0xFFFF) + ", нужен не выше " + Opcodes.V1_8 + " (compileTemplates)");
+            }
+            for (MethodNode mn : cn.methods) {
+                if (!"<clinit>".equals(mn.name)) continue;
+                for (AbstractInsnNode insn : mn.instructions) {
+                    if (insn instanceof LdcInsnNode ldc && "{{RECHECK_MILLIS}}".equals(ldc.cst)) {
+                        ldc.cst = String.valueOf(recheckMillis);
+                    }
+                }
+            }
+            return cn;
         }
+    }
 
-        // дальше стандартная проверка contains...
-        list.add(new MethodInsnNode(
-                Opcodes.INVOKEVIRTUAL,
-                "java/lang/String",
-                "contains",
-                "(Ljava/lang/CharSequence;)Z",
-                false));
+    private InsnList buildAntiDebugBlock(FrameNode entry) {
+        InsnList list = new InsnList();
+        LabelNode ok = new LabelNode();
+
+        // готовый вердикт guard'а: без аллокаций и расшифровки на каждом вызове
+        list.add(recheckMillis > 0
+                ? new FieldInsnNode(Opcodes.GETSTATIC, GUARD, "debugged", "Z")
+                : new FieldInsnNode(Opcodes.GETSTATIC, GUARD, "DEBUGGED", "Z"));
         list.add(new JumpInsnNode(Opcodes.IFEQ, ok));
 
         // бросаем исключение
@@ -131,6 +139,7 @@ public class AntiDebugTransformer implements ITransformer {
 
         // метка продолжения
         list.add(ok);
+        if (entry != null) list.add(entry);
         return list;
     }
 
@@ -8,7 +8,6 @@ import org.objectweb.asm.tree.*;
 
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.jar.JarFile;
 
 public class BindingTransformer implements ITransformer {
     private byte[] utilClassBytes;
@@ -23,10 +22,8 @@ public class BindingTransformer implements ITransformer {
             utilClassBytes = is.readAllBytes();
         }
         // 2) Узнаём Main-Class
-        try (JarFile jar = new JarFile(ctx.getInputJar().toFile())) {
-            String mc = jar.getManifest().getMainAttributes().getValue("Main-Class");
-            this.mainClassInternal = mc.replace('.', '/');
-        }
+        String mc = ctx.getJar().getManifest().getMainAttributes().getValue("Main-Class");
+        this.mainClassInternal = mc.replace('.', '/');
         // 3) Читаем ожидаемый хеш из ресурса (его заранее положили, например, в /templates/expected_hash.txt)
         try (InputStream ih = getClass().getResourceAsStream("/templates/expected_hash.txt")) {
             expectedHash = new String(ih.readAllBytes(), StandardCharsets.UTF_8).trim();
@@ -82,6 +79,22 @@ public class BindingTransformer implements ITransformer {
         // ничего
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean preservesFrames() {
+        // в начало main вставляются только вызовы
+        return true;
+    }
+
+    @Override
+    public String cacheFingerprint() {
+        return mainClassInternal + ";" + expectedHash + ";" + expectedPath;
+    }
+
     public byte[] getUtilClassBytes() {
         return utilClassBytes;
     }
@@ -3,18 +3,28 @@ package com.myobfuscator.transformer;
 
 import com.myobfuscator.core.ITransformer;
 import com.myobfuscator.core.ObfuscationContext;
+import com.myobfuscator.transformer.OpaquePredicates.Family;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class ControlFlowTransformer implements ITransformer {
+    private static final Family[] FAMILIES = Family.values();
+
     private ObfuscationContext context;
 
+    // статистика для отчёта в finish; transform() вызывается из нескольких потоков
+    private final AtomicInteger methods = new AtomicInteger();
+    private final AtomicInteger budgetLimited = new AtomicInteger();
+    private final AtomicInteger hotLimited = new AtomicInteger();
+    private final AtomicInteger crossedMaxInline = new AtomicInteger();
+    private final AtomicInteger crossedFreqInline = new AtomicInteger();
+    private final AtomicIntegerArray byFamily = new AtomicIntegerArray(FAMILIES.length);
+
     @Override
     public void init(ObfuscationContext ctx) {
         this.context = ctx;
@@ -22,6 +32,15 @@ public class ControlFlowTransformer implements ITransformer {
 
     @Override
     public void transform(ClassNode classNode) {
+        boolean frames = Frames.needed(classNode);
+        // в интерфейсе все поля public static final — затравку туда не положить
+        String seedField = (classNode.access & Opcodes.ACC_INTERFACE) == 0 ? seedField(classNode) : null;
+        boolean seedUsed = false;
+        int deadBranches = context.getDeadBranchCount();
+        if (deadBranches <= 0) return;
+        AbstractInsnNode[] picks = new AbstractInsnNode[deadBranches];
+        FrameNode[] pickFrames = new FrameNode[deadBranches];
+
         for (MethodNode method : classNode.methods) {
             // пропускаем «пустые», abstract и native
             if (method.instructions == null || method.instructions.size() == 0) continue;
@@ -29,62 +48,167 @@ public class ControlFlowTransformer implements ITransformer {
             if ((acc & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) continue;
 
             InsnList insns = method.instructions;
-            int deadBranches = context.getDeadBranchCount();
-            Random rnd = context.getRandom();
-
-            // Сохраняем статический снимок списка узлов
-            List<AbstractInsnNode> snapshot = Arrays.asList(insns.toArray());
-
-            // Фильтруем только «безопасные» позиции для вставки
-            List<AbstractInsnNode> candidates = snapshot.stream()
-                    .filter(in -> !(in instanceof LabelNode))
-                    .filter(in -> !(in instanceof FrameNode))
-                    .filter(in -> !(in instanceof LineNumberNode))
-                    .filter(in -> {
-                        int op = in.getOpcode();
-                        // не перед return/goto/switch
-                        return op != Opcodes.RETURN
-                                && op != Opcodes.GOTO
-                                && !(in instanceof JumpInsnNode)
-                                && !(in instanceof LookupSwitchInsnNode)
-                                && !(in instanceof TableSwitchInsnNode);
-                    })
-                    .collect(Collectors.toList());
-
-            // Перемешиваем кандидатов и берём первые deadBranches (или меньше)
-            Collections.shuffle(candidates, rnd);
-            List<AbstractInsnNode> picks = candidates.stream()
-                    .limit(deadBranches)
-                    .toList();
-
-            // Вставляем «мёртвые» ветвления перед каждым выбранным узлом
-            for (AbstractInsnNode anchor : picks) {
-                insns.insertBefore(anchor, buildDeadBranch());
+            // свой генератор на метод: выбор не зависит от порядка и потока обработки
+            SplittableRandom rnd = context.random(getClass(), classNode.name, method.name + method.desc);
+
+            // Выбираем точки вставки за один проход без промежуточных коллекций
+            int count = frames
+                    ? sampleFramed(classNode, method, rnd, picks, pickFrames)
+                    : sampleAny(insns, rnd, picks, pickFrames);
+
+            // Бюджет: горячий метод (по профилю) не должен перейти порог инлайнинга,
+            // холодный может — ради защиты, но это попадёт в отчёт
+            boolean hot = context.getProfile().isHot(classNode.name, method.name, method.desc);
+            int size = OpaquePredicates.codeSize(insns);
+            int budget = OpaquePredicates.inlineBudget(size);
+            int added = 0;
+            boolean limited = false;
+            int[] perFamily = new int[FAMILIES.length];
+
+            // Вставляем предикаты перед каждым выбранным узлом
+            for (int i = 0; i < count; i++) {
+                FrameNode frame = pickFrames[i];
+                int local = OpaquePredicates.intLocal(frame, rnd);
+                boolean hasX = local >= 0 || seedField != null;
+                Family family = pickFamily(rnd, perFamily, hasX, seedField != null, budget - added);
+                if (family == null) {
+                    limited = true;
+                    if (hot) break;
+                    family = cheapestFamily(perFamily, hasX, seedField != null);
+                    if (family == null) break;
+                }
+                insns.insertBefore(picks[i], OpaquePredicates.build(family, classNode.name, seedField, local, frame));
+                seedUsed |= local < 0 || family == Family.STATIC_FIELD;
+                perFamily[family.ordinal()]++;
+                byFamily.incrementAndGet(family.ordinal());
+                added += family.cost;
+            }
+            Arrays.fill(picks, null);
+            Arrays.fill(pickFrames, null);
+
+            if (added > 0) methods.incrementAndGet();
+            if (limited) {
+                budgetLimited.incrementAndGet();
+                if (hot) hotLimited.incrementAndGet();
+            }
+            if (size <= OpaquePredicates.MAX_INLINE_SIZE && size + added > OpaquePredicates.MAX_INLINE_SIZE) {
+                crossedMaxInline.incrementAndGet();
+            }
+            if (size <= OpaquePredicates.FREQ_INLINE_SIZE && size + added > OpaquePredicates.FREQ_INLINE_SIZE) {
+                crossedFreqInline.incrementAndGet();
+            }
+        }
+
+        if (seedUsed) addSeed(classNode, seedField, context.random(getClass(), classNode.name, null));
+    }
+
+    /**
+     * Reservoir sampling (алгоритм R) по точкам с известным кадром: вход в метод и узлы
+     * сразу после FrameNode. Каждая точка попадает в выборку с равной вероятностью.
+     */
+    private static int sampleFramed(ClassNode owner, MethodNode method, SplittableRandom rnd,
+                                    AbstractInsnNode[] picks, FrameNode[] frames) {
+        int seen = 0;
+        AbstractInsnNode first = method.instructions.getFirst();
+        if (!Frames.framedAt(first)) {
+            seen = offer(rnd, picks, frames, seen, first, Frames.entry(owner.name, method));
+        }
+        for (AbstractInsnNode in = first; in != null; in = in.getNext()) {
+            if (in instanceof FrameNode frame && frame.getNext() != null) {
+                seen = offer(rnd, picks, frames, seen, frame.getNext(), frame);
             }
         }
+        return Math.min(seen, picks.length);
     }
 
-    @Override
-    public void finish(ObfuscationContext ctx) {
-        // no-op
+    /** То же для классов без кадров: любая инструкция, кроме переходов, switch и return */
+    private static int sampleAny(InsnList insns, SplittableRandom rnd,
+                                 AbstractInsnNode[] picks, FrameNode[] frames) {
+        int seen = 0;
+        for (AbstractInsnNode in = insns.getFirst(); in != null; in = in.getNext()) {
+            int op = in.getOpcode();
+            if (op < 0 || op == Opcodes.RETURN || in instanceof JumpInsnNode
+                    || in instanceof LookupSwitchInsnNode || in instanceof TableSwitchInsnNode) continue;
+            seen = offer(rnd, picks, frames, seen, in, null);
+        }
+        return Math.min(seen, picks.length);
+    }
+
+    private static int offer(SplittableRandom rnd, AbstractInsnNode[] picks, FrameNode[] frames,
+                             int seen, AbstractInsnNode anchor, FrameNode frame) {
+        int slot = seen < picks.length ? seen : rnd.nextInt(seen + 1);
+        if (slot < picks.length) {
+            picks[slot] = anchor;
+            frames[slot] = frame;
+        }
+        return seen + 1;
+    }
+
+    /** Случайное семейство, которое ещё не исчерпало лимит метода и влезает в бюджет */
+    private static Family pickFamily(SplittableRandom rnd, int[] perFamily, boolean hasX, boolean hasSeed, int budget) {
+        Family chosen = null;
+        int seen = 0;
+        for (Family f : FAMILIES) {
+            if (!available(f, perFamily, hasX, hasSeed) || f.cost > budget) continue;
+            if (rnd.nextInt(++seen) == 0) chosen = f;
+        }
+        return chosen;
+    }
+
+    private static Family cheapestFamily(int[] perFamily, boolean hasX, boolean hasSeed) {
+        Family chosen = null;
+        for (Family f : FAMILIES) {
+            if (available(f, perFamily, hasX, hasSeed) && (chosen == null || f.cost < chosen.cost)) chosen = f;
+        }
+        return chosen;
+    }
+
+    private static boolean available(Family f, int[] perFamily, boolean hasX, boolean hasSeed) {
+        if (perFamily[f.ordinal()] >= f.maxPerMethod) return false;
+        return f == Family.STATIC_FIELD ? hasSeed : hasX;
+    }
+
+    /** Имя поля затравки, не совпадающее с полями класса */
+    private static String seedField(ClassNode classNode) {
+        String name = "$op";
+        for (int i = 0; StringEncryptorTransformer.hasField(classNode, name); i++) name = "$op" + i;
+        return name;
     }
 
     /**
-     * Построить InsnList с «мёртвым» ветвлением:
-     *    ICONST_0
-     *    IFNE end
-     *    ICONST_1
-     *    POP
-     *  end:
+     * private static int-поле, которое в начале <clinit> получает случайное значение, кратное 4.
+     * Поле не final, поэтому JIT не может подставить значение и свернуть предикаты.
      */
-    private InsnList buildDeadBranch() {
-        LabelNode end = new LabelNode();
-        InsnList dead = new InsnList();
-        dead.add(new InsnNode(Opcodes.ICONST_0));
-        dead.add(new JumpInsnNode(Opcodes.IFNE, end));
-        dead.add(new InsnNode(Opcodes.ICONST_1));
-        dead.add(new InsnNode(Opcodes.POP));
-        dead.add(end);
-        return dead;
+    private static void addSeed(ClassNode classNode, String seedField, SplittableRandom rnd) {
+        classNode.fields.add(new FieldNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+                seedField, "I", null, null));
+        InsnList init = new InsnList();
+        init.add(StringEncryptorTransformer.pushInt(rnd.nextInt() & ~3));
+        init.add(new FieldInsnNode(Opcodes.PUTSTATIC, classNode.name, seedField, "I"));
+        StringEncryptorTransformer.staticInitializer(classNode).instructions.insert(init);
+    }
+
+    @Override
+    public void finish(ObfuscationContext ctx) {
+        System.out.println("[ControlFlow] opaque predicates in " + methods + " methods: "
+                + byFamily.get(Family.ARITHMETIC.ordinal()) + " arithmetic, "
+                + byFamily.get(Family.STATIC_FIELD.ordinal()) + " static field, "
+                + byFamily.get(Family.SWITCH.ordinal()) + " switch");
+        System.out.println("[ControlFlow] inline budget limited " + budgetLimited + " methods ("
+                + hotLimited + " hot); crossed MaxInlineSize=" + OpaquePredicates.MAX_INLINE_SIZE + ": "
+                + crossedMaxInline + ", FreqInlineSize=" + OpaquePredicates.FREQ_INLINE_SIZE + ": "
+                + crossedFreqInline);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        // генераторы — на метод, статистика атомарная
+        return true;
+    }
+
+    @Override
+    public boolean preservesFrames() {
+        // метки предикатов получают копию кадра точки вставки
+        return true;
     }
 }
@@ -0,0 +1,58 @@
+package com.myobfuscator.transformer;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Кадры StackMapTable для вставляемых ветвлений без пересчёта всего метода.
+ * Классы читаются с EXPAND_FRAMES, поэтому каждый FrameNode — полный (F_NEW) и
+ * описывает состояние в своей точке. Метка перехода получает копию такого кадра
+ * или кадр входа в метод, построенный по дескриптору.
+ */
+final class Frames {
+    private Frames() {}
+
+    /** До Java 6 кадров нет, и добавлять их не нужно */
+    static boolean needed(ClassNode owner) {
+        return (owner.version & 0xFFFF) >= Opcodes.V1_6;
+    }
+
+    /** Состояние на входе в метод: this (в <init> — ещё не инициализированный) и аргументы */
+    static FrameNode entry(String owner, MethodNode m) {
+        List<Object> locals = new ArrayList<>();
+        if ((m.access & Opcodes.ACC_STATIC) == 0) {
+            locals.add("<init>".equals(m.name) ? Opcodes.UNINITIALIZED_THIS : owner);
+        }
+        for (Type arg : Type.getArgumentTypes(m.desc)) {
+            locals.add(switch (arg.getSort()) {
+                case Type.BOOLEAN, Type.CHAR, Type.BYTE, Type.SHORT, Type.INT -> Opcodes.INTEGER;
+                case Type.FLOAT -> Opcodes.FLOAT;
+                case Type.LONG -> Opcodes.LONG;      // в развёрнутых кадрах long/double — один элемент
+                case Type.DOUBLE -> Opcodes.DOUBLE;
+                default -> arg.getInternalName();    // объект или массив
+            });
+        }
+        return new FrameNode(Opcodes.F_NEW, locals.size(), locals.toArray(), 0, new Object[0]);
+    }
+
+    static FrameNode copy(FrameNode f) {
+        Object[] local = f.local != null ? f.local.toArray() : new Object[0];
+        Object[] stack = f.stack != null ? f.stack.toArray() : new Object[0];
+        return new FrameNode(f.type, local.length, local, stack.length, stack);
+    }
+
+    /**
+     * Есть ли кадр между insn и следующей инструкцией байткода. Второй кадр
+     * на том же смещении ClassWriter не примет — тогда годится уже существующий.
+     */
+    static boolean framedAt(AbstractInsnNode insn) {
+        for (AbstractInsnNode n = insn; n != null && n.getOpcode() < 0; n = n.getNext()) {
+            if (n instanceof FrameNode) return true;
+        }
+        return false;
+    }
+}
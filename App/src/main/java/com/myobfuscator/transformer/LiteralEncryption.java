@@ -0,0 +1,54 @@
+package com.myobfuscator.transformer;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Шифрование литералов для StringEncryptorTransformer и AntiDebugTransformer.
+ * Cipher не потокобезопасен, поэтому у каждого потока свой экземпляр. AES/ECB при одном
+ * ключе детерминирован, так что одинаковые литералы во всём JAR шифруются один раз.
+ */
+final class LiteralEncryption {
+    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+
+    private final SecretKey key;
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(this::newCipher);
+    private final Map<String, byte[]> encrypted = new ConcurrentHashMap<>();
+
+    LiteralEncryption(SecretKey key) {
+        this.key = key;
+    }
+
+    /** Шифротекст литерала (UTF-8); повторные литералы берутся из кэша */
+    byte[] encrypt(String literal) {
+        return encrypted.computeIfAbsent(literal, l -> encrypt(l.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Произвольные данные (например, таблица строк класса), без кэша */
+    byte[] encrypt(byte[] data) {
+        try {
+            return ciphers.get().doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES encryption failed", e);
+        }
+    }
+
+    /** Сколько разных литералов уже зашифровано */
+    int size() {
+        return encrypted.size();
+    }
+
+    private Cipher newCipher() {
+        try {
+            Cipher c = Cipher.getInstance(TRANSFORMATION);
+            c.init(Cipher.ENCRYPT_MODE, key);
+            return c;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot create " + TRANSFORMATION + " cipher", e);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.myobfuscator.transformer;
+
+import com.myobfuscator.core.ClassHierarchy;
+import com.myobfuscator.core.ClassHierarchy.ClassInfo;
+import com.myobfuscator.core.ClassHierarchy.Member;
+import org.objectweb.asm.Opcodes;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Новые имена методов и полей.
+ * Классы JAR'а, связанные наследованием или реализацией интерфейсов, образуют компоненту.
+ * Внутри компоненты одно исходное имя всегда получает одно и то же новое имя, поэтому
+ * переопределения, перегрузки, мосты и затенённые поля разрешаются так же, как до
+ * переименования. Не трогаются члены, видимые из библиотечных супертипов (их имена
+ * задаёт библиотека), и то, что JVM или рефлексия ищут по имени.
+ */
+final class MemberMapping {
+    private static final Set<String> OBJECT_STREAM_METHODS = Set.of(
+            "writeObject(Ljava/io/ObjectOutputStream;)V", "readObject(Ljava/io/ObjectInputStream;)V",
+            "readObjectNoData()V", "writeReplace()Ljava/lang/Object;", "readResolve()Ljava/lang/Object;");
+
+    private final Map<String, Component> byClass = new HashMap<>();
+    private int renamedMethods;
+    private int renamedFields;
+    private int components;
+
+    private static final class Component {
+        final List<ClassInfo> classes = new ArrayList<>();
+        // name+desc методов и name:desc полей, которые остаются как есть
+        final Set<String> fixedMethods = new HashSet<>();
+        final Set<String> fixedFields = new HashSet<>();
+        final Map<String, String> methodNames = new HashMap<>();
+        final Map<String, String> fieldNames = new HashMap<>();
+        String fingerprint;
+    }
+
+    /** checkCancelled — перед каждой компонентой: для каждой читаются её библиотечные супертипы */
+    MemberMapping(ClassHierarchy hierarchy, Runnable checkCancelled) {
+        for (List<ClassInfo> group : groupByHierarchy(hierarchy)) {
+            checkCancelled.run();
+            Component c = new Component();
+            c.classes.addAll(group);
+            for (ClassInfo info : group) byClass.put(info.name(), c);
+            if (collectFixed(hierarchy, c)) {
+                assignNames(c);
+            }
+            c.fingerprint = fingerprint(c);
+            components++;
+        }
+    }
+
+    /** Union-find по ссылкам super/interfaces между классами JAR'а; порядок — как во входном JAR */
+    private static Collection<List<ClassInfo>> groupByHierarchy(ClassHierarchy hierarchy) {
+        Map<String, String> parent = new HashMap<>();
+        for (ClassInfo info : hierarchy.jarClasses()) {
+            parent.put(info.name(), info.name());
+        }
+        for (ClassInfo info : hierarchy.jarClasses()) {
+            for (String s : info.supertypes()) {
+                if (parent.containsKey(s)) parent.put(root(parent, info.name()), root(parent, s));
+            }
+        }
+        Map<String, List<ClassInfo>> groups = new LinkedHashMap<>();
+        for (ClassInfo info : hierarchy.jarClasses()) {
+            groups.computeIfAbsent(root(parent, info.name()), k -> new ArrayList<>()).add(info);
+        }
+        return groups.values();
+    }
+
+    private static String root(Map<String, String> parent, String name) {
+        String r = name;
+        while (!parent.get(r).equals(r)) r = parent.get(r);
+        // сжатие пути
+        while (!parent.get(name).equals(r)) {
+            String next = parent.get(name);
+            parent.put(name, r);
+            name = next;
+        }
+        return r;
+    }
+
+    /**
+     * Заполняет fixedMethods/fixedFields. false — у компоненты есть ненайденный
+     * супертип: неизвестно, что он объявляет, поэтому её члены не переименовываются.
+     */
+    private static boolean collectFixed(ClassHierarchy hierarchy, Component c) {
+        Set<String> seen = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        for (ClassInfo info : c.classes) {
+            for (String s : info.supertypes()) {
+                if (!hierarchy.isJarClass(s) && seen.add(s)) queue.add(s);
+            }
+            keepByContract(info, c);
+        }
+        // всё, что видно из библиотечных супертипов (включая Object), переименовывать нельзя
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            ClassInfo lib = hierarchy.get(name);
+            if (lib == null) {
+                System.err.println("[Renamer] WARNING: " + name + " not found, members of "
+                        + c.classes.get(0).name() + " and its hierarchy keep their names");
+                return false;
+            }
+            for (Member m : lib.methods()) {
+                if (!m.isPrivate()) c.fixedMethods.add(m.name() + m.desc());
+            }
+            for (Member f : lib.fields()) {
+                if (!f.isPrivate()) c.fixedFields.add(f.name() + ":" + f.desc());
+            }
+            for (String s : lib.supertypes()) {
+                if (seen.add(s)) queue.add(s);
+            }
+        }
+        return true;
+    }
+
+    /** Члены, которые JVM, сериализация или рефлексия находят по имени */
+    private static void keepByContract(ClassInfo info, Component c) {
+        boolean keepAll = (info.access() & (Opcodes.ACC_ANNOTATION | Opcodes.ACC_RECORD)) != 0;
+        boolean isEnum = (info.access() & Opcodes.ACC_ENUM) != 0;
+        String self = "L" + info.name() + ";";
+        for (Member m : info.methods()) {
+            String key = m.name() + m.desc();
+            if (keepAll
+                    || m.name().startsWith("<")
+                    || (m.access() & Opcodes.ACC_NATIVE) != 0
+                    || (m.isStatic() && key.equals("main([Ljava/lang/String;)V"))
+                    || OBJECT_STREAM_METHODS.contains(key)
+                    || (isEnum && (key.equals("values()[" + self)
+                                || key.equals("valueOf(Ljava/lang/String;)" + self)))) {
+                c.fixedMethods.add(key);
+            }
+        }
+        for (Member f : info.fields()) {
+            if (keepAll
+                    || (f.access() & Opcodes.ACC_ENUM) != 0
+                    || f.name().equals("serialVersionUID")
+                    || f.name().equals("serialPersistentFields")) {
+                c.fixedFields.add(f.name() + ":" + f.desc());
+            }
+        }
+    }
+
+    private void assignNames(Component c) {
+        // новые имена не должны совпасть с теми, что остаются
+        Set<String> usedMethods = new HashSet<>();
+        for (String key : c.fixedMethods) usedMethods.add(key.substring(0, key.indexOf('(')));
+        Set<String> usedFields = new HashSet<>();
+        for (String key : c.fixedFields) usedFields.add(key.substring(0, key.indexOf(':')));
+
+        int nextMethod = 0;
+        int nextField = 0;
+        for (ClassInfo info : c.classes) {
+            for (Member m : info.methods()) {
+                if (c.fixedMethods.contains(m.name() + m.desc())) continue;
+                if (!c.methodNames.containsKey(m.name())) {
+                    String name;
+                    do name = shortName(nextMethod++); while (usedMethods.contains(name));
+                    c.methodNames.put(m.name(), name);
+                }
+                renamedMethods++;
+            }
+            for (Member f : info.fields()) {
+                if (c.fixedFields.contains(f.name() + ":" + f.desc())) continue;
+                if (!c.fieldNames.containsKey(f.name())) {
+                    String name;
+                    do name = shortName(nextField++); while (usedFields.contains(name));
+                    c.fieldNames.put(f.name(), name);
+                }
+                renamedFields++;
+            }
+        }
+    }
+
+    /** 0 → a, 25 → z, 26 → aa, ... */
+    private static String shortName(int index) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = index; i >= 0; i = i / 26 - 1) {
+            sb.append((char) ('a' + i % 26));
+        }
+        return sb.reverse().toString();
+    }
+
+    private static String fingerprint(Component c) {
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(c.methodNames).forEach((k, v) -> sb.append(k).append('=').append(v).append(';'));
+        new TreeSet<>(c.fixedMethods).forEach(k -> sb.append(k).append(';'));
+        sb.append('|');
+        new TreeMap<>(c.fieldNames).forEach((k, v) -> sb.append(k).append('=').append(v).append(';'));
+        new TreeSet<>(c.fixedFields).forEach(k -> sb.append(k).append(';'));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** owner — исходное имя класса из инструкции/Handle; для чужих классов имя не меняется */
+    String mapMethod(String owner, String name, String desc) {
+        Component c = byClass.get(owner);
+        if (c == null || c.fixedMethods.contains(name + desc)) return name;
+        return c.methodNames.getOrDefault(name, name);
+    }
+
+    String mapField(String owner, String name, String desc) {
+        Component c = byClass.get(owner);
+        if (c == null || c.fixedFields.contains(name + ":" + desc)) return name;
+        return c.fieldNames.getOrDefault(name, name);
+    }
+
+    /** Отпечаток имён членов компоненты класса — для ключей BuildCache; null для чужих классов */
+    String fingerprint(String owner) {
+        Component c = byClass.get(owner);
+        return c != null ? c.fingerprint : null;
+    }
+
+    int getRenamedMethods() { return renamedMethods; }
+    int getRenamedFields() { return renamedFields; }
+    int getComponents() { return components; }
+}
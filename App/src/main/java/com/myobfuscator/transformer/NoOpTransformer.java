@@ -17,4 +17,12 @@ public class NoOpTransformer implements ITransformer {
     public void finish(ObfuscationContext ctx) {
         System.out.println("[NoOp] finish");
     }
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+    @Override
+    public boolean preservesFrames() {
+        return true;
+    }
 }
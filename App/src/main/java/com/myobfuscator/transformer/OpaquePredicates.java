@@ -0,0 +1,147 @@
+package com.myobfuscator.transformer;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+
+import java.util.SplittableRandom;
+
+/**
+ * Непрозрачные предикаты для ControlFlowTransformer: условие всегда выполняется, но
+ * вывести это можно только из арифметики над значением, неизвестным JIT'у
+ * (int-переменная метода или затравка класса). Мёртвая ветка — aconst_null; athrow.
+ * Все метки получают копию кадра точки вставки, так что кадры не пересчитываются.
+ */
+final class OpaquePredicates {
+    /** Пороги инлайнинга HotSpot по умолчанию (-XX:MaxInlineSize, -XX:FreqInlineSize), байт */
+    static final int MAX_INLINE_SIZE = 35;
+    static final int FREQ_INLINE_SIZE = 325;
+
+    enum Family {
+        /** x*(x+1) всегда чётно (переполнение по модулю 2^32 этого не меняет) */
+        ARITHMETIC(14, 4),
+        /** затравка класса кратна 4 (до <clinit> — 0): (seed & 3) == 0 */
+        STATIC_FIELD(10, 2),
+        /** tableswitch по ключу (x*x) & 2 == 0 (квадрат по модулю 4 — 0 или 1): реальный путь — case 0 */
+        SWITCH(40, 1);
+
+        /** Оценка прироста байткода (с запасом на загрузку x) */
+        final int cost;
+        /** Сколько предикатов семейства допускается в одном методе */
+        final int maxPerMethod;
+
+        Family(int cost, int maxPerMethod) {
+            this.cost = cost;
+            this.maxPerMethod = maxPerMethod;
+        }
+    }
+
+    private OpaquePredicates() {}
+
+    /**
+     * Сколько байт можно добавить, не выводя метод за порог инлайнинга, под которым он был:
+     * до MaxInlineSize инлайнится всегда, до FreqInlineSize — если горячий.
+     */
+    static int inlineBudget(int size) {
+        if (size <= MAX_INLINE_SIZE) return MAX_INLINE_SIZE - size;
+        if (size <= FREQ_INLINE_SIZE) return FREQ_INLINE_SIZE - size;
+        return Integer.MAX_VALUE;
+    }
+
+    /** Приблизительный размер байткода (без wide и выравнивания switch) */
+    static int codeSize(InsnList insns) {
+        int size = 0;
+        for (AbstractInsnNode in : insns) {
+            size += switch (in.getType()) {
+                case AbstractInsnNode.LABEL, AbstractInsnNode.FRAME, AbstractInsnNode.LINE -> 0;
+                case AbstractInsnNode.INT_INSN -> in.getOpcode() == Opcodes.SIPUSH ? 3 : 2;
+                case AbstractInsnNode.VAR_INSN -> ((VarInsnNode) in).var <= 3 && in.getOpcode() != Opcodes.RET ? 1 : 2;
+                case AbstractInsnNode.LDC_INSN -> ((LdcInsnNode) in).cst instanceof Long
+                        || ((LdcInsnNode) in).cst instanceof Double ? 3 : 2;
+                case AbstractInsnNode.TYPE_INSN, AbstractInsnNode.FIELD_INSN,
+                     AbstractInsnNode.JUMP_INSN, AbstractInsnNode.IINC_INSN -> 3;
+                case AbstractInsnNode.METHOD_INSN -> in.getOpcode() == Opcodes.INVOKEINTERFACE ? 5 : 3;
+                case AbstractInsnNode.INVOKE_DYNAMIC_INSN -> 5;
+                case AbstractInsnNode.MULTIANEWARRAY_INSN -> 4;
+                case AbstractInsnNode.TABLESWITCH_INSN -> 16 + 4 * ((TableSwitchInsnNode) in).labels.size();
+                case AbstractInsnNode.LOOKUPSWITCH_INSN -> 12 + 8 * ((LookupSwitchInsnNode) in).labels.size();
+                default -> 1;
+            };
+        }
+        return size;
+    }
+
+    /** Слот случайной int-переменной из кадра; -1 — таких нет */
+    static int intLocal(FrameNode frame, SplittableRandom rnd) {
+        if (frame == null || frame.local == null) return -1;
+        int found = -1;
+        int seen = 0;
+        int slot = 0;
+        for (Object type : frame.local) {
+            // по одному кандидату в случайном порядке, без промежуточного списка
+            if (type == Opcodes.INTEGER && rnd.nextInt(++seen) == 0) found = slot;
+            slot += type == Opcodes.LONG || type == Opcodes.DOUBLE ? 2 : 1;
+        }
+        return found;
+    }
+
+    /**
+     * Предикат семейства family перед точкой с кадром frame (null — класс без кадров).
+     * local — int-переменная для x (-1 — брать затравку seedField класса owner).
+     */
+    static InsnList build(Family family, String owner, String seedField, int local, FrameNode frame) {
+        InsnList list = new InsnList();
+        LabelNode end = new LabelNode();
+        switch (family) {
+            case ARITHMETIC -> {
+                list.add(loadX(owner, seedField, local));
+                list.add(new InsnNode(Opcodes.DUP));
+                list.add(new InsnNode(Opcodes.ICONST_1));
+                list.add(new InsnNode(Opcodes.IADD));
+                list.add(new InsnNode(Opcodes.IMUL));
+                list.add(new InsnNode(Opcodes.ICONST_1));
+                list.add(new InsnNode(Opcodes.IAND));
+                list.add(new JumpInsnNode(Opcodes.IFEQ, end));
+                list.add(deadCode());
+            }
+            case STATIC_FIELD -> {
+                list.add(new FieldInsnNode(Opcodes.GETSTATIC, owner, seedField, "I"));
+                list.add(new InsnNode(Opcodes.ICONST_3));
+                list.add(new InsnNode(Opcodes.IAND));
+                list.add(new JumpInsnNode(Opcodes.IFEQ, end));
+                list.add(deadCode());
+            }
+            case SWITCH -> {
+                LabelNode dead1 = new LabelNode();
+                LabelNode dead2 = new LabelNode();
+                list.add(loadX(owner, seedField, local));
+                list.add(new InsnNode(Opcodes.DUP));
+                list.add(new InsnNode(Opcodes.IMUL));
+                list.add(new InsnNode(Opcodes.ICONST_2));
+                list.add(new InsnNode(Opcodes.IAND));
+                list.add(new TableSwitchInsnNode(0, 2, dead2, end, dead1, dead2));
+                list.add(dead1);
+                if (frame != null) list.add(Frames.copy(frame));
+                list.add(deadCode());
+                list.add(dead2);
+                if (frame != null) list.add(Frames.copy(frame));
+                list.add(deadCode());
+            }
+        }
+        list.add(end);
+        if (frame != null) list.add(Frames.copy(frame));
+        return list;
+    }
+
+    private static AbstractInsnNode loadX(String owner, String seedField, int local) {
+        return local >= 0
+                ? new VarInsnNode(Opcodes.ILOAD, local)
+                : new FieldInsnNode(Opcodes.GETSTATIC, owner, seedField, "I");
+    }
+
+    private static InsnList deadCode() {
+        InsnList list = new InsnList();
+        list.add(new InsnNode(Opcodes.ACONST_NULL));
+        list.add(new InsnNode(Opcodes.ATHROW));
+        return list;
+    }
+}
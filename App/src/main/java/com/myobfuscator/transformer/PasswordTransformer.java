@@ -27,10 +27,20 @@ public class PasswordTransformer implements ITransformer {
     @Override
     public void finish(ObfuscationContext ctx) { }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean preservesFrames() {
+        return true;
+    }
+
     public ClassNode generatePasswordUtilNode() throws IOException {
         ClassReader cr = new ClassReader(utilClassBytes);
         ClassNode cn = new ClassNode();
-        cr.accept(cn, 0);
+        cr.accept(cn, ClassReader.EXPAND_FRAMES);
         return cn;
     }
 }
@@ -4,334 +4,401 @@ import com.myobfuscator.core.ITransformer;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.tree.ClassNode;
 import com.myobfuscator.core.ObfuscationContext;
+import com.myobfuscator.io.JarSource;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.Remapper;
 import org.objectweb.asm.tree.*;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 public class RenamerTransformer implements ITransformer {
 
+    private static final String MAPPING_FILE = "classmap.txt";
+
     private final Map<String, String> classMap = new HashMap<>();
+    private final Map<String, String> originalNames = new HashMap<>();
+    private final Map<String, String> previousMap = new HashMap<>();
+    private final List<String> forcedNames = new ArrayList<>();
     private int classCounter = 0;
+    private Path mappingFile;
+    // Разбирает дескрипторы и сигнатуры по токенам: один lookup в classMap на каждое имя,
+    // без подстрочных замен (которые портили имена-префиксы друг друга)
+    private Remapper remapper;
+    // null — методы и поля не переименовываются
+    private MemberMapping members;
 
     @Override
     public void init(ObfuscationContext ctx) throws Exception {
-        // 1) Открыть входной JAR
-        try (JarFile jar = new JarFile(ctx.getInputJar().toFile())) {
-            Enumeration<JarEntry> entries = jar.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                if (!entry.getName().endsWith(".class")) continue;
-                String internalName = entry.getName().replaceAll("\\.class$", "");
-                classMap.put(internalName, "C" + (classCounter++));
-            }
+        // 0) Карта прошлого прогона: имена классов не должны «плыть» между сборками
+        if (ctx.getCacheDir() != null) {
+            mappingFile = ctx.getCacheDir().resolve(MAPPING_FILE);
+            loadPreviousMapping();
+        }
+
+        // 1) Пройти по записям входного JAR (он уже открыт ядром)
+        for (JarSource.Entry entry : ctx.getJar().entries()) {
+            if (!entry.isClass()) continue;
+            ctx.checkCancelled();
+            String name = entry.getName();
+            assign(name.substring(0, name.length() - ".class".length()));
         }
 
         // 2) Жёстко добавляем StringDecryptor в classMap
-        String decryptorInternal = "com/myobfuscator/util/StringDecryptor";
-        String decryptorNewName = "C" + (classCounter++);
-        classMap.put(decryptorInternal, decryptorNewName);
+        String decryptorInternal = StringEncryptorTransformer.DECRYPTOR;
+        String decryptorNewName = assignForced(decryptorInternal);
         System.out.println("[Renamer] forced mapping for StringDecryptor: "
                 + decryptorInternal + " -> " + decryptorNewName);
 
         // принудительно мапим PasswordUtil
         String pwdInternal = "com/myobfuscator/security/PasswordUtil";
-        String pwdNew = "C" + (classCounter++);
-        classMap.put(pwdInternal, pwdNew);
+        String pwdNew = assignForced(pwdInternal);
         System.out.println("[Renamer] forced mapping for PasswordUtil: " +
                 pwdInternal + " -> " + pwdNew);
 
 
+        String guardInternal = "com/myobfuscator/util/AntiDebugGuard";
+        String guardNew = assignForced(guardInternal);
+        System.out.println("[Renamer] forced mapping for AntiDebugGuard: " +
+                guardInternal + " -> " + guardNew);
+
         try (InputStream bind = getClass()
                 .getResourceAsStream("/templates/SystemBindingUtil.class")) {
             if (bind != null) {
                 ClassReader cr = new ClassReader(bind);
                 String utilName = cr.getClassName(); // com/myobfuscator/protection/SystemBindingUtil
-                String newName = "C" + (classCounter++);
-                classMap.put(utilName, newName);
+                String newName = assignForced(utilName);
                 System.out.println("[Renamer] added binding util: " +
                         utilName + " -> " + newName);
             } else {
                 System.err.println("[Renamer] WARNING: SystemBindingUtil.class not found in /templates/");
             }
         }
+
+        classMap.forEach((oldName, newName) -> originalNames.put(newName, oldName));
+        remapper = new NameRemapper();
+
+        // 3) Методы и поля: имена зависят от иерархии, поэтому строятся по индексу классов
+        if (ctx.isRenameMembers()) {
+            members = new MemberMapping(ctx.getHierarchy(), ctx::checkCancelled);
+            System.out.println("[Renamer] members: " + members.getRenamedMethods() + " methods, "
+                    + members.getRenamedFields() + " fields renamed in "
+                    + members.getComponents() + " hierarchies");
+        }
+
+        if (mappingFile != null) {
+            long reused = classMap.keySet().stream().filter(previousMap::containsKey).count();
+            long removed = previousMap.keySet().stream().filter(k -> !classMap.containsKey(k)).count();
+            System.out.println("[Renamer] mapping vs previous run: " + reused + " kept, "
+                    + (classMap.size() - reused) + " new, " + removed + " removed");
+        }
+    }
+
+    /** Новое имя берётся из прошлого прогона, если класс там уже был */
+    private String assign(String internalName) {
+        String name = previousMap.get(internalName);
+        if (name == null) name = "C" + (classCounter++);
+        classMap.put(internalName, name);
+        return name;
+    }
+
+    private String assignForced(String internalName) {
+        forcedNames.add(internalName);
+        return assign(internalName);
+    }
+
+    private void loadPreviousMapping() throws IOException {
+        if (!Files.exists(mappingFile)) return;
+        for (String line : Files.readAllLines(mappingFile, StandardCharsets.UTF_8)) {
+            int sp = line.indexOf(' ');
+            if (sp <= 0) continue;
+            String newName = line.substring(sp + 1);
+            previousMap.put(line.substring(0, sp), newName);
+            // счётчик продолжаем после самого большого выданного номера
+            if (newName.startsWith("C")) {
+                try {
+                    classCounter = Math.max(classCounter, Integer.parseInt(newName.substring(1)) + 1);
+                } catch (NumberFormatException ignored) { }
+            }
+        }
     }
 
+    /**
+     * Один проход по классу: каждая инструкция, поле, метод и атрибут посещаются ровно один раз,
+     * без промежуточных массивов. Ссылки на классы переименовываются через remapper.
+     */
     @Override
     public void transform(ClassNode classNode) {
-        // 2.4.1) Class-level annotations
-        remapAnnotations(classNode.visibleAnnotations);
-        remapAnnotations(classNode.invisibleAnnotations);
+        // имена членов ищутся по исходным именам владельца и дескрипторам,
+        // поэтому член переименовывается раньше, чем его владелец и дескриптор
+        String owner = classNode.name;
 
-        if (classNode.signature != null) {
-            classNode.signature = remapSignature(classNode.signature);
+        // 1) Сам класс, его суперкласс, интерфейсы и generic-сигнатура
+        classNode.name = remapper.mapType(classNode.name);
+        if (classNode.superName != null) {
+            classNode.superName = remapper.mapType(classNode.superName);
         }
-        // 1) Переименовать сам класс
-        String oldName = classNode.name;
-        String newName = classMap.get(oldName);
-        if (newName != null) {
-            classNode.name = newName;
+        classNode.interfaces.replaceAll(remapper::mapType);
+        if (classNode.signature != null) {
+            classNode.signature = remapper.mapSignature(classNode.signature, false);
         }
+        remapAnnotations(classNode.visibleAnnotations);
+        remapAnnotations(classNode.invisibleAnnotations);
+        remapAnnotations(classNode.visibleTypeAnnotations);
+        remapAnnotations(classNode.invisibleTypeAnnotations);
 
-        for (MethodNode mn : classNode.methods) {
-            // 0) Переименовать сигнатуру (generic) — у тебя уже есть
-            if (mn.signature != null) {
-                mn.signature = remapSignature(mn.signature);
+        // 1.1) Вложенность: outer/inner classes, nest host/members, sealed-иерархия
+        if (classNode.outerClass != null) {
+            if (classNode.outerMethod != null) {
+                classNode.outerMethod = remapper.mapMethodName(
+                        classNode.outerClass, classNode.outerMethod, classNode.outerMethodDesc);
             }
-            // 1) Переименовать DESCRIPTOR метода/конструктора:
-            //    например "(Ldemo/TestAll;)V" → "(LC0;)V"
-            String oldDesc = mn.desc;
-            String newDesc = remapDesc(oldDesc);
-            if (!newDesc.equals(oldDesc)) {
-                mn.desc = newDesc;
+            classNode.outerClass = remapper.mapType(classNode.outerClass);
+            if (classNode.outerMethodDesc != null) {
+                classNode.outerMethodDesc = remapper.mapMethodDesc(classNode.outerMethodDesc);
             }
         }
+        if (classNode.innerClasses != null) {
+            for (InnerClassNode icn : classNode.innerClasses) {
+                icn.name = remapper.mapType(icn.name);
+                if (icn.outerName != null) icn.outerName = remapper.mapType(icn.outerName);
+                // icn.innerName (простое имя) оставляем без изменений
+            }
+        }
+        if (classNode.nestHostClass != null) {
+            classNode.nestHostClass = remapper.mapType(classNode.nestHostClass);
+        }
+        if (classNode.nestMembers != null) classNode.nestMembers.replaceAll(remapper::mapType);
+        if (classNode.permittedSubclasses != null) classNode.permittedSubclasses.replaceAll(remapper::mapType);
 
-        for (MethodNode mn : classNode.methods) {
-            // — уже обновили mn.desc и mn.signature выше
-            InsnList insns = mn.instructions;
-            // Перебираем всевозможные узлы один раз
-            for (AbstractInsnNode insn = insns.getFirst(); insn != null; insn = insn.getNext()) {
-                if (insn instanceof TypeInsnNode tin) {
-                    // NEW, CHECKCAST, ANEWARRAY
-                    String rn = classMap.get(tin.desc);
-                    if (rn != null) tin.desc = rn;
-                }
-                else if (insn instanceof FieldInsnNode fin) {
-                    String rn = classMap.get(fin.owner);
-                    if (rn != null) fin.owner = rn;
-                }
-                else if (insn instanceof MethodInsnNode min) {
-                    // INVOKESPECIAL, INVOKEVIRTUAL и т.д.
-                    String rn = classMap.get(min.owner);
-                    if (rn != null) {
-                        min.owner = rn;
-                    }
-                    // и дескриптор вызова (конструктора) тоже правим:
-                    String nd = remapDesc(min.desc);
-                    if (!nd.equals(min.desc)) min.desc = nd;
-                }
-                else if (insn instanceof InvokeDynamicInsnNode indy) {
-                    // bootstrap args: Type и Handle
-                    for (int i = 0; i < indy.bsmArgs.length; i++) {
-                        Object arg = indy.bsmArgs[i];
-                        if (arg instanceof Type t && t.getSort() == Type.OBJECT) {
-                            String in = t.getInternalName();
-                            String rn = classMap.get(in);
-                            if (rn != null) indy.bsmArgs[i] = Type.getObjectType(rn);
-                        } else if (arg instanceof Handle h) {
-                            String o = h.getOwner();
-                            String rn = classMap.get(o);
-                            if (rn != null) {
-                                indy.bsmArgs[i] = new Handle(
-                                        h.getTag(), rn, h.getName(), h.getDesc(), h.isInterface()
-                                );
-                            }
-                        }
-                    }
-                }
+        // 1.2) Компоненты record'а: имена не меняются (их ищет рефлексия), типы — да
+        if (classNode.recordComponents != null) {
+            for (RecordComponentNode rc : classNode.recordComponents) {
+                rc.descriptor = remapper.mapDesc(rc.descriptor);
+                if (rc.signature != null) rc.signature = remapper.mapSignature(rc.signature, true);
+                remapAnnotations(rc.visibleAnnotations);
+                remapAnnotations(rc.invisibleAnnotations);
+                remapAnnotations(rc.visibleTypeAnnotations);
+                remapAnnotations(rc.invisibleTypeAnnotations);
             }
         }
 
         // 2) Поля
-        classNode.fields.forEach(fn -> {
-            if (fn.signature != null) {
-                fn.signature = remapSignature(fn.signature);
-            }
-        });
+        for (FieldNode fn : classNode.fields) {
+            fn.name = remapper.mapFieldName(owner, fn.name, fn.desc);
+            fn.desc = remapper.mapDesc(fn.desc);
+            if (fn.signature != null) fn.signature = remapper.mapSignature(fn.signature, true);
+            remapAnnotations(fn.visibleAnnotations);
+            remapAnnotations(fn.invisibleAnnotations);
+            remapAnnotations(fn.visibleTypeAnnotations);
+            remapAnnotations(fn.invisibleTypeAnnotations);
+        }
 
         // 3) Методы
-        classNode.methods.forEach(mn -> {
-            if (mn.signature != null) {
-                mn.signature = remapSignature(mn.signature);
-            }
-            if (mn.exceptions != null) {
-                mn.exceptions.replaceAll(ex -> classMap.getOrDefault(ex, ex));
-            }
-        });
+        for (MethodNode mn : classNode.methods) {
+            remapMethod(owner, mn);
+        }
+    }
 
-        // 4) Переименовать суперкласс
-        if (classMap.containsKey(classNode.superName)) {
-            classNode.superName = classMap.get(classNode.superName);
+    private void remapMethod(String owner, MethodNode mn) {
+        // 3.1) Имя, дескриптор, сигнатура, throws
+        //      например "(Ldemo/TestAll;)V" → "(LC0;)V"
+        mn.name = remapper.mapMethodName(owner, mn.name, mn.desc);
+        mn.desc = remapper.mapMethodDesc(mn.desc);
+        if (mn.signature != null) mn.signature = remapper.mapSignature(mn.signature, false);
+        if (mn.exceptions != null) mn.exceptions.replaceAll(remapper::mapType);
+
+        // 3.2) Аннотации метода, параметров и значение по умолчанию (для @interface)
+        remapAnnotations(mn.visibleAnnotations);
+        remapAnnotations(mn.invisibleAnnotations);
+        remapAnnotations(mn.visibleTypeAnnotations);
+        remapAnnotations(mn.invisibleTypeAnnotations);
+        remapParameterAnnotations(mn.visibleParameterAnnotations);
+        remapParameterAnnotations(mn.invisibleParameterAnnotations);
+        if (mn.annotationDefault != null) mn.annotationDefault = remapAnnotationValue(mn.annotationDefault);
+
+        // 3.3) Локальные переменные: имя не трогаем, а тип и generic-подпись — да
+        if (mn.localVariables != null) {
+            for (LocalVariableNode lv : mn.localVariables) {
+                lv.desc = remapper.mapDesc(lv.desc);
+                if (lv.signature != null) lv.signature = remapper.mapSignature(lv.signature, true);
+            }
         }
-        // 5) Переименовать интерфейсы
-        for (int i = 0; i < classNode.interfaces.size(); i++) {
-            String iface = classNode.interfaces.get(i);
-            if (classMap.containsKey(iface)) {
-                classNode.interfaces.set(i, classMap.get(iface));
+        if (mn.tryCatchBlocks != null) {
+            for (TryCatchBlockNode tcb : mn.tryCatchBlocks) {
+                if (tcb.type != null) tcb.type = remapper.mapType(tcb.type);
             }
         }
 
-        // 6) Переименовать все ссылочные инструкции
-        classNode.methods.forEach(mn -> {
-            InsnList insns = mn.instructions;
-            for (AbstractInsnNode insn : insns.toArray()) {
-                if (insn instanceof TypeInsnNode tin) {
-                    // NEW, CHECKCAST, ANEWARRAY — tin.desc это INTERNAL_NAME
-                    String renamed = classMap.get(tin.desc);
-                    if (renamed != null) {
-                        tin.desc = renamed;
-                    }
-                }
-                else if (insn instanceof FieldInsnNode fin) {
-                    // доступ к полю
-                    String ro = fin.owner;
-                    String r = classMap.get(ro);
-                    if (r != null) fin.owner = r;
-                }
-                else if (insn instanceof MethodInsnNode min) {
-                    // вызов метода или конструктора
-                    String ro = min.owner;
-                    String r = classMap.get(ro);
-                    if (r != null) min.owner = r;
-                    // и дескриптор: (Ldemo/TestAll;)V → (LC0;)V
-                    String oldDesc = min.desc;
-                    String nd = remapDesc(oldDesc);
-                    if (!nd.equals(oldDesc)) min.desc = nd;
-                }
-                else if (insn instanceof InvokeDynamicInsnNode indy) {
-                    // твой код для bootstrap args
-                    for (int i = 0; i < indy.bsmArgs.length; i++) {
-                        Object arg = indy.bsmArgs[i];
-                        if (arg instanceof Type t && t.getSort() == Type.OBJECT) {
-                            String in = t.getInternalName();
-                            String rn = classMap.get(in);
-                            if (rn != null) indy.bsmArgs[i] = Type.getObjectType(rn);
-                        } else if (arg instanceof Handle h) {
-                            String o = h.getOwner();
-                            String rn = classMap.get(o);
-                            if (rn != null) {
-                                indy.bsmArgs[i] = new Handle(
-                                        h.getTag(), rn, h.getName(), h.getDesc(), h.isInterface()
-                                );
-                            }
-                        }
-                    }
-                }
-            }
-        });
-
-
-        //Локальные переменные
-        classNode.methods.forEach(method -> {
-            if (method.localVariables != null) {
-                for (LocalVariableNode lv : method.localVariables) {
-                    // lv.name — это имя переменной, его обычно не обфусцируем
-                    // Но вот lv.desc и lv.signature могут содержать внутренние имена классов
-                    // 1) Переименовать тип переменной
-                    String oldDesc = lv.desc;              // например "Ldemo/TestAll;"
-                    String newDesc = remapDesc(oldDesc);
-                    if (!newDesc.equals(oldDesc)) {
-                        lv.desc = newDesc;
-                    }
-                    // 2) Переименовать generic-подпись
-                    if (lv.signature != null) {
-                        String oldSig = lv.signature;
-                        String newSig = remapSignature(oldSig);
-                        if (!newSig.equals(oldSig)) {
-                            lv.signature = newSig;
-                        }
-                    }
-                }
-            }
-        });
+        // 3.4) Все инструкции — один раз
+        for (AbstractInsnNode insn = mn.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            remapInsn(insn);
+        }
+    }
 
-        // 2.4.2) Field-level annotations
-        classNode.fields.forEach(fn -> {
-            remapAnnotations(fn.visibleAnnotations);
-            remapAnnotations(fn.invisibleAnnotations);
-        });
-
-        // 2.4.3) Method-level annotations (and parameter annotations)
-        classNode.methods.forEach(mn -> {
-            remapAnnotations(mn.visibleAnnotations);
-            remapAnnotations(mn.invisibleAnnotations);
-            if (mn.visibleParameterAnnotations != null) {
-                for (List<AnnotationNode> paramAnns : mn.visibleParameterAnnotations) {
-                    remapAnnotations(paramAnns);
-                }
+    private void remapInsn(AbstractInsnNode insn) {
+        if (insn instanceof TypeInsnNode tin) {
+            // NEW, CHECKCAST, INSTANCEOF, ANEWARRAY — internal name или дескриптор массива
+            tin.desc = remapper.mapType(tin.desc);
+        } else if (insn instanceof FieldInsnNode fin) {
+            fin.name = remapper.mapFieldName(fin.owner, fin.name, fin.desc);
+            fin.owner = remapper.mapType(fin.owner);
+            fin.desc = remapper.mapDesc(fin.desc);
+        } else if (insn instanceof MethodInsnNode min) {
+            // owner может быть и массивом (clone() у массива)
+            min.name = remapper.mapMethodName(min.owner, min.name, min.desc);
+            min.owner = remapper.mapType(min.owner);
+            min.desc = remapper.mapMethodDesc(min.desc);
+        } else if (insn instanceof InvokeDynamicInsnNode indy) {
+            // лямбда: имя indy — это метод функционального интерфейса, он мог быть переименован
+            if (indy.bsm.getOwner().equals("java/lang/invoke/LambdaMetafactory")
+                    && indy.bsmArgs.length > 0 && indy.bsmArgs[0] instanceof Type samType) {
+                String iface = Type.getReturnType(indy.desc).getInternalName();
+                indy.name = remapper.mapMethodName(iface, indy.name, samType.getDescriptor());
             }
-            if (mn.invisibleParameterAnnotations != null) {
-                for (List<AnnotationNode> paramAnns : mn.invisibleParameterAnnotations) {
-                    remapAnnotations(paramAnns);
-                }
+            indy.desc = remapper.mapMethodDesc(indy.desc);
+            indy.bsm = (Handle) remapper.mapValue(indy.bsm);
+            // bootstrap args: Type (в т.ч. типы методов), Handle, ConstantDynamic
+            for (int i = 0; i < indy.bsmArgs.length; i++) {
+                indy.bsmArgs[i] = remapper.mapValue(indy.bsmArgs[i]);
             }
-        });
+        } else if (insn instanceof LdcInsnNode ldc) {
+            // Foo.class, MethodType, condy
+            ldc.cst = remapper.mapValue(ldc.cst);
+        } else if (insn instanceof MultiANewArrayInsnNode multi) {
+            multi.desc = remapper.mapDesc(multi.desc);
+        } else if (insn instanceof FrameNode frame) {
+            remapFrameTypes(frame.local);
+            remapFrameTypes(frame.stack);
+        }
+    }
 
-        //2.4.4 Inner classes
-        if (classNode.innerClasses != null) {
-            for (InnerClassNode icn : classNode.innerClasses) {
-                // 1) вложенный класс
-                if (classMap.containsKey(icn.name)) {
-                    icn.name = classMap.get(icn.name);
-                }
-                // 2) внешний класс
-                if (icn.outerName != null && classMap.containsKey(icn.outerName)) {
-                    icn.outerName = classMap.get(icn.outerName);
-                }
-                // 3) оставляем icn.innerName (простой) без изменений
+    /** В кадрах ссылочные типы записаны внутренними именами (остальное — Integer/LabelNode) */
+    private void remapFrameTypes(List<Object> types) {
+        if (types == null) return;
+        for (int i = 0; i < types.size(); i++) {
+            if (types.get(i) instanceof String type) {
+                types.set(i, remapper.mapType(type));
             }
         }
-
     }
 
     @Override
     public void finish(ObfuscationContext ctx) {
-        // Ничего не делаем
+        if (mappingFile != null) {
+            List<String> lines = new ArrayList<>();
+            new TreeMap<>(classMap).forEach((k, v) -> lines.add(k + " " + v));
+            try {
+                Files.createDirectories(mappingFile.getParent());
+                Files.write(mappingFile, lines, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot save " + mappingFile, e);
+            }
+        }
         System.out.println("[Renamer] done");
     }
 
+    @Override
+    public String cacheFingerprint() {
+        // от этих имён зависят вызовы, которые другие трансформеры вставляют в каждый класс
+        StringBuilder sb = new StringBuilder(members != null ? "members;" : "");
+        for (String name : forcedNames) sb.append(name).append('=').append(classMap.get(name)).append(';');
+        return sb.toString();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        // classMap заполняется в init и дальше только читается
+        return true;
+    }
+
+    @Override
+    public boolean preservesFrames() {
+        // типы в кадрах переименовываются вместе со всем остальным
+        return true;
+    }
+
     public Map<String, String> getClassMap() {
         return classMap;
     }
 
-    private String remapSignature(String sig) {
-        for (Map.Entry<String, String> e : classMap.entrySet()) {
-            sig = sig.replace(e.getKey(), e.getValue());
-        }
-        return sig;
+    /** Исходное имя класса по новому (для классов, которые Renamer не трогал, — само имя) */
+    public String originalName(String newName) {
+        return originalNames.getOrDefault(newName, newName);
+    }
+
+    /**
+     * Как переименовывается класс и его члены — входит в ключ BuildCache его пользователей;
+     * null, если класс не наш
+     */
+    public String describeMapping(String internalName) {
+        String mapped = classMap.get(internalName);
+        String memberNames = members != null ? members.fingerprint(internalName) : null;
+        return memberNames == null ? mapped : mapped + "#" + memberNames;
     }
 
-    private String remapDesc(String desc) {
-        // пример: desc = "Ljava/util/List<Ldemo/TestAll;>;"
-        // нужно пройтись по classMap, заменяя "/demo/TestAll" на "/C0" и т.п.
-        for (Map.Entry<String, String> e : classMap.entrySet()) {
-            String key = e.getKey();      // "demo/TestAll"
-            String val = e.getValue();    // "C0"
-            // в desc внутренние имена всегда идут с ведущим 'L' и завершающим ';'
-            desc = desc.replace(key, val);
+    /** classMap + MemberMapping в виде Remapper'а ASM */
+    private final class NameRemapper extends Remapper {
+        @Override
+        public String map(String internalName) {
+            return classMap.get(internalName);
+        }
+
+        @Override
+        public String mapMethodName(String owner, String name, String descriptor) {
+            return members != null ? members.mapMethod(owner, name, descriptor) : name;
+        }
+
+        @Override
+        public String mapFieldName(String owner, String name, String descriptor) {
+            return members != null ? members.mapField(owner, name, descriptor) : name;
         }
-        return desc;
     }
 
-    private void remapAnnotations(List<AnnotationNode> list) {
+    private void remapAnnotations(List<? extends AnnotationNode> list) {
         if (list == null) return;
         for (AnnotationNode an : list) {
-            // 1) переименовать desc
-            an.desc = remapDesc(an.desc);
-            // 2) в values: ключи/значения
-            if (an.values != null) {
-                for (int i = 0; i < an.values.size(); i++) {
-                    Object v = an.values.get(i);
-                    if (v instanceof String s) {
-                        // строки оставляем как есть
-                    } else if (v instanceof Type t && t.getSort() == Type.OBJECT) {
-                        String in = t.getInternalName();
-                        if (classMap.containsKey(in)) {
-                            an.values.set(i, Type.getObjectType(classMap.get(in)));
-                        }
-                    } else if (v instanceof AnnotationNode nested) {
-                        // рекурсивно обрабатываем вложенную аннотацию
-                        remapAnnotations(List.of(nested));
-                    }
-                    // остальные типы (Integer, etc.) не трогаем
-                }
+            remapAnnotation(an);
+        }
+    }
+
+    private void remapParameterAnnotations(List<AnnotationNode>[] params) {
+        if (params == null) return;
+        for (List<AnnotationNode> paramAnns : params) {
+            remapAnnotations(paramAnns);
+        }
+    }
+
+    private void remapAnnotation(AnnotationNode an) {
+        an.desc = remapper.mapDesc(an.desc);
+        // values = [имя, значение, имя, значение, ...] — имена элементов не трогаем
+        if (an.values != null) {
+            for (int i = 1; i < an.values.size(); i += 2) {
+                an.values.set(i, remapAnnotationValue(an.values.get(i)));
             }
         }
     }
 
+    private Object remapAnnotationValue(Object v) {
+        if (v instanceof Type t) {
+            return remapper.mapValue(t);
+        } else if (v instanceof String[] enumValue) {
+            // enum-константа: {дескриптор enum'а, имя константы}
+            return new String[] { remapper.mapDesc(enumValue[0]), enumValue[1] };
+        } else if (v instanceof AnnotationNode nested) {
+            remapAnnotation(nested);
+        } else if (v instanceof List<?> list) {
+            @SuppressWarnings("unchecked")
+            List<Object> values = (List<Object>) list;
+            values.replaceAll(this::remapAnnotationValue);
+        }
+        // строки и примитивы не трогаем
+        return v;
+    }
 }
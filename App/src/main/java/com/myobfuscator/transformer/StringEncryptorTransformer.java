@@ -2,85 +2,438 @@ package com.myobfuscator.transformer;
 
 import com.myobfuscator.core.ITransformer;
 import com.myobfuscator.core.ObfuscationContext;
+import com.myobfuscator.io.JarSource;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class StringEncryptorTransformer implements ITransformer {
 
+    /** Как расшифрованный литерал попадает на стек */
+    public enum Mode {
+        /**
+         * push slot; invokestatic get — шифротекст каждого различного литерала лежит один раз
+         * в общей таблице дешифратора, расшифровывается при первом обращении и кэшируется
+         */
+        CALL("Shared table"),
+        /** ldc ConstantDynamic — JVM сама вызывает bootstrap один раз, строка становится константой */
+        CONSTANT_DYNAMIC("Lazy constant"),
+        /** все литералы класса — один зашифрованный блок, в <clinit> он разворачивается в String[] */
+        CLASS_TABLE("Class table");
+
+        private final String label;
+
+        Mode(String label) { this.label = label; }
+
+        @Override
+        public String toString() { return label; }
+    }
+
+    static final String DECRYPTOR = "com/myobfuscator/util/StringDecryptor";
+    private static final Handle CONSTANT_BSM = new Handle(Opcodes.H_INVOKESTATIC, DECRYPTOR, "constant",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/String;", false);
+    private static final Handle CALL_SITE_BSM = new Handle(Opcodes.H_INVOKESTATIC, DECRYPTOR, "callSite",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;", false);
+
+    // Строковая константа в class-файле — не больше 65535 байт, длинный блок режем на части
+    private static final int MAX_LDC_CHARS = 65535;
+
+    private final Mode mode;
+
+    private static final Base64.Encoder BASE64 = Base64.getEncoder();
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
     private SecretKey aesKey;
-    private Cipher encryptCipher;
+    private LiteralEncryption encryption;
     private String base64Key;
-    private final String decryptorInternal = "com/myobfuscator/util/StringDecryptor";
+    private static final String SLOTS_FILE = "string-slots.txt";
+
+    // Base64(AES(literal)) → номер слота в StringDecryptor.CACHE; одинаковые литералы делят слот.
+    // Слоты раздаются в init (до параллельных трансформаций), в transform таблица только читается
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    // слоты прошлого прогона из кэша: живые литералы сохраняют номер, остальные становятся дырами
+    private final Map<String, Integer> persistedSlots = new LinkedHashMap<>();
+    private Path slotsFile;
+    private ClassNode decryptorNode;
+
+    public StringEncryptorTransformer() {
+        this(Mode.CALL);
+    }
+
+    public StringEncryptorTransformer(Mode mode) {
+        this.mode = mode;
+    }
 
     @Override
     public void init(ObfuscationContext context) throws Exception {
-        // Генерация AES-ключа
-        KeyGenerator keyGen = KeyGenerator.getInstance("AES");
-        keyGen.init(128);
-        aesKey = keyGen.generateKey();
+        // Генерация AES-ключа. С --seed ключ выводится из seed: один seed — один JAR.
+        // При инкрементальной сборке так же: seed живёт в кэше (seed.txt), и закэшированные
+        // классы подходят к новому дешифратору. Без seed и кэша ключ случайный
+        aesKey = context.isSeedFixed() || context.getCacheDir() != null
+                ? seededKey(context.random(StringEncryptorTransformer.class, null, null))
+                : generateKey();
 
-        // Инициализация шифратора
-        encryptCipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-        encryptCipher.init(Cipher.ENCRYPT_MODE, aesKey);
+        // Инициализация шифратора: свой Cipher на поток, общий кэш шифротекстов
+        encryption = new LiteralEncryption(aesKey);
 
         // Base64 ключ для StringDecryptor
         base64Key = Base64.getEncoder().encodeToString(aesKey.getEncoded());
         System.out.println("[StringEncryptor] Generated AES key: " + base64Key);
+
+        // Номера слотов уже лежат в закэшированных классах, поэтому тоже переживают прогон;
+        // в таблицу попадают только литералы, которые ещё есть в JAR'е (assignSlots)
+        if (context.getCacheDir() != null) {
+            slotsFile = context.getCacheDir().resolve(SLOTS_FILE);
+            loadSlots();
+        }
+
+        // Пул литералов всего JAR: слоты не зависят от того, в каком порядке потоки дойдут до классов
+        if (mode == Mode.CALL) {
+            assignSlots(context);
+        }
+    }
+
+    /**
+     * Интернирование литералов всего JAR'а: предварительный проход собирает строки из ldc
+     * (в порядке записей JAR'а), каждая различная строка получает один слот общей таблицы.
+     * Шифруются они параллельно, одной пачкой, а номера слотов от потоков не зависят.
+     * Литерал из прошлого прогона получает прежний номер; исчезнувшие литералы в таблицу
+     * не попадают — их номера остаются пустыми дырами, чтобы не сдвигать живые слоты.
+     */
+    private void assignSlots(ObfuscationContext context) throws Exception {
+        Set<String> literals = new LinkedHashSet<>();
+        MethodVisitor ldcCollector = new MethodVisitor(Opcodes.ASM9) {
+            @Override
+            public void visitLdcInsn(Object value) {
+                if (value instanceof String str) literals.add(str);
+            }
+        };
+        ClassVisitor classVisitor = new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor,
+                                             String signature, String[] exceptions) {
+                return ldcCollector;
+            }
+        };
+        JarSource jar = context.getJar();
+        for (JarSource.Entry entry : jar.entries()) {
+            if (!entry.isClass()) continue;
+            context.checkCancelled();
+            new ClassReader(jar.read(entry)).accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        }
+        ForkJoinPool pool = new ForkJoinPool(context.getParallelism());
+        try {
+            pool.submit(() -> literals.parallelStream().forEach(literal -> {
+                context.checkCancelled();
+                encryption.encrypt(literal);
+            })).get();
+        } catch (ExecutionException e) {
+            // отмена и ошибки шифрования — как есть, без обёртки пула
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+        List<String> fresh = new ArrayList<>();
+        for (String literal : literals) {
+            String b64 = BASE64.encodeToString(encryption.encrypt(literal));
+            Integer slot = persistedSlots.get(b64);
+            if (slot != null) {
+                slots.put(b64, slot);
+            } else {
+                fresh.add(b64);
+            }
+        }
+        // новые литералы — после самого большого живого слота
+        nextSlot.set(slots.values().stream().mapToInt(i -> i + 1).max().orElse(0));
+        for (String b64 : fresh) slotFor(b64);
+        persistedSlots.clear();
     }
 
     @Override
     public void transform(ClassNode classNode) {
-        if (decryptorInternal.equals(classNode.name)) return;
+        if (DECRYPTOR.equals(classNode.name)) return;
+        if (mode == Mode.CLASS_TABLE) {
+            transformToTable(classNode);
+            return;
+        }
+        int major = classNode.version & 0xFFFF;
         // Шифрование литералов (как ранее)
         for (MethodNode mn : classNode.methods) {
             InsnList insns = mn.instructions;
-            if (insns == null) continue;
-
-            List<AbstractInsnNode> toReplace = new ArrayList<>();
-            for (AbstractInsnNode insn : insns.toArray()) {
-                if (insn instanceof LdcInsnNode ldc && ldc.cst instanceof String) {
-                    toReplace.add(insn);
+            for (AbstractInsnNode insn = insns.getFirst(); insn != null; ) {
+                AbstractInsnNode next = insn.getNext();
+                if (insn instanceof LdcInsnNode ldc && ldc.cst instanceof String original) {
+                    byte[] encrypted = encryption.encrypt(original);
+                    if (mode == Mode.CONSTANT_DYNAMIC && major >= Opcodes.V1_7) {
+                        // имя константы/call site = шифротекст; '/' в имени недопустим, поэтому URL-safe
+                        String name = BASE64_URL.encodeToString(encrypted);
+                        if (major >= Opcodes.V11) {
+                            ldc.cst = new ConstantDynamic(name, "Ljava/lang/String;", CONSTANT_BSM);
+                        } else {
+                            // до Java 11 condy нет: call site на callSite() дешифратора (он собран под Java 8)
+                            insns.set(ldc, new InvokeDynamicInsnNode(name, "()Ljava/lang/String;", CALL_SITE_BSM));
+                        }
+                    } else {
+                        insns.insertBefore(ldc, decryptCall(BASE64.encodeToString(encrypted)));
+                        insns.remove(ldc);
+                    }
                 }
+                insn = next;
             }
-            for (AbstractInsnNode insn : toReplace) {
-                LdcInsnNode ldc = (LdcInsnNode) insn;
-                String original = (String) ldc.cst;
-                try {
-                    byte[] encrypted = encryptCipher.doFinal(original.getBytes(StandardCharsets.UTF_8));
-                    String b64 = Base64.getEncoder().encodeToString(encrypted);
-
-                    InsnList repl = new InsnList();
-                    repl.add(new LdcInsnNode(b64));
-                    repl.add(new MethodInsnNode(
-                            Opcodes.INVOKESTATIC,
-                            "com/myobfuscator/util/StringDecryptor",
-                            "decryptBase64",
-                            "(Ljava/lang/String;)Ljava/lang/String;",
-                            false
-                    ));
-
-                    insns.insertBefore(insn, repl);
-                    insns.remove(insn);
-                } catch (Exception e) {
-                    throw new RuntimeException("Encryption failed for: " + original, e);
+        }
+    }
+
+    /**
+     * push slot; invokestatic get. Литералы, которых не было в пуле JAR'а (например,
+     * из инжектированных шаблонов), остаются парой ldc b64; invokestatic decryptBase64 —
+     * они выполняются один раз при старте.
+     */
+    private InsnList decryptCall(String b64) {
+        InsnList repl = new InsnList();
+        Integer slot = slots.get(b64);
+        if (slot != null) {
+            repl.add(pushInt(slot));
+            repl.add(new MethodInsnNode(Opcodes.INVOKESTATIC, DECRYPTOR, "get",
+                    "(I)Ljava/lang/String;", false));
+        } else {
+            repl.add(new LdcInsnNode(b64));
+            repl.add(new MethodInsnNode(Opcodes.INVOKESTATIC, DECRYPTOR, "decryptBase64",
+                    "(Ljava/lang/String;)Ljava/lang/String;", false));
+        }
+        return repl;
+    }
+
+    /**
+     * Режим CLASS_TABLE: ldc "literal" → getstatic Owner.table; push index; aaload.
+     * Таблица заполняется в начале <clinit> одним вызовом StringDecryptor.table(blob) —
+     * один doFinal на класс вместо шифротекста и расшифровки на каждый литерал.
+     */
+    private void transformToTable(ClassNode classNode) {
+        Map<String, Integer> index = new LinkedHashMap<>();
+        String field = tableField(classNode);
+        for (MethodNode mn : classNode.methods) {
+            for (AbstractInsnNode insn = mn.instructions.getFirst(); insn != null; ) {
+                AbstractInsnNode next = insn.getNext();
+                if (insn instanceof LdcInsnNode ldc && ldc.cst instanceof String str) {
+                    int i = index.computeIfAbsent(str, k -> index.size());
+                    InsnList load = new InsnList();
+                    load.add(new FieldInsnNode(Opcodes.GETSTATIC, classNode.name, field, "[Ljava/lang/String;"));
+                    load.add(pushInt(i));
+                    load.add(new InsnNode(Opcodes.AALOAD));
+                    mn.instructions.insertBefore(insn, load);
+                    mn.instructions.remove(insn);
                 }
+                insn = next;
             }
         }
+        if (index.isEmpty()) return;
+
+        String blob;
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeInt(index.size());
+            // writeUTF — тот же modified UTF-8 и тот же предел 65535 байт, что у строк в пуле констант
+            for (String str : index.keySet()) out.writeUTF(str);
+            blob = BASE64.encodeToString(encryption.encrypt(bos.toByteArray()));
+        } catch (IOException e) {
+            throw new RuntimeException("Encryption failed for string table of " + classNode.name, e);
+        }
+
+        boolean isInterface = (classNode.access & Opcodes.ACC_INTERFACE) != 0;
+        int access = Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC
+                | (isInterface ? Opcodes.ACC_PUBLIC : Opcodes.ACC_PRIVATE);
+        classNode.fields.add(new FieldNode(access, field, "[Ljava/lang/String;", null, null));
+
+        InsnList init = loadLongString(blob);
+        init.add(new MethodInsnNode(Opcodes.INVOKESTATIC, DECRYPTOR, "table",
+                "(Ljava/lang/String;)[Ljava/lang/String;", false));
+        init.add(new FieldInsnNode(Opcodes.PUTSTATIC, classNode.name, field, "[Ljava/lang/String;"));
+        staticInitializer(classNode).instructions.insert(init);
+    }
+
+    /** Строка любой длины на стек: по ldc на каждые 65535 символов, склеенные через concat */
+    private static InsnList loadLongString(String value) {
+        InsnList list = new InsnList();
+        list.add(new LdcInsnNode(value.substring(0, Math.min(value.length(), MAX_LDC_CHARS))));
+        for (int from = MAX_LDC_CHARS; from < value.length(); from += MAX_LDC_CHARS) {
+            list.add(new LdcInsnNode(value.substring(from, Math.min(value.length(), from + MAX_LDC_CHARS))));
+            list.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "java/lang/String", "concat",
+                    "(Ljava/lang/String;)Ljava/lang/String;", false));
+        }
+        return list;
+    }
+
+    /** Имя поля таблицы, не совпадающее с полями класса */
+    private static String tableField(ClassNode classNode) {
+        String name = "$s";
+        for (int i = 0; hasField(classNode, name); i++) name = "$s" + i;
+        return name;
+    }
+
+    static boolean hasField(ClassNode classNode, String name) {
+        for (FieldNode fn : classNode.fields) {
+            if (fn.name.equals(name)) return true;
+        }
+        return false;
+    }
+
+    static MethodNode staticInitializer(ClassNode classNode) {
+        for (MethodNode mn : classNode.methods) {
+            if ("<clinit>".equals(mn.name)) return mn;
+        }
+        MethodNode clinit = new MethodNode(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+        clinit.instructions.add(new InsnNode(Opcodes.RETURN));
+        classNode.methods.add(clinit);
+        return clinit;
     }
 
     @Override
     public void finish(ObfuscationContext context) {
+        Map<Integer, String> bySlot = new TreeMap<>();
+        slots.forEach((b64, slot) -> bySlot.put(slot, b64));
+
+        // Теперь известны все слоты: число и общую таблицу шифротекстов вписываем
+        // в дешифратор (он пишется в JAR после finish)
+        if (decryptorNode != null) {
+            String table = sharedTable(bySlot);
+            for (MethodNode mn : decryptorNode.methods) {
+                if (!"<clinit>".equals(mn.name)) continue;
+                for (AbstractInsnNode insn = mn.instructions.getFirst(); insn != null; ) {
+                    AbstractInsnNode next = insn.getNext();
+                    if (insn instanceof LdcInsnNode ldc && "{{SLOT_COUNT}}".equals(ldc.cst)) {
+                        ldc.cst = String.valueOf(nextSlot.get());
+                    } else if (insn instanceof LdcInsnNode ldc && "{{STRING_TABLE}}".equals(ldc.cst)) {
+                        mn.instructions.insert(ldc, loadLongString(table));
+                        mn.instructions.remove(ldc);
+                    }
+                    insn = next;
+                }
+            }
+        }
+        if (slotsFile != null) {
+            List<String> lines = new ArrayList<>();
+            bySlot.forEach((slot, b64) -> lines.add(slot + " " + b64));
+            try {
+                Files.write(slotsFile, lines, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot save " + slotsFile, e);
+            }
+        }
+        System.out.println("[StringEncryptor] " + encryption.size() + " distinct literals, "
+                + slots.size() + " of " + nextSlot.get() + " decryptor slots in use");
+    }
+
+    /** Шифротексты по порядку слотов: [длина int][байты]..., в Base64; дыра — запись длины 0 */
+    private String sharedTable(Map<Integer, String> bySlot) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        try {
+            for (int slot = 0; slot < nextSlot.get(); slot++) {
+                String b64 = bySlot.get(slot);
+                byte[] encrypted = b64 != null ? Base64.getDecoder().decode(b64) : new byte[0];
+                out.writeInt(encrypted.length);
+                out.write(encrypted);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream не бросает
+        }
+        return BASE64.encodeToString(bos.toByteArray());
+    }
+
+    /** Слот дешифратора для зашифрованного литерала (новый — в конец таблицы) */
+    private int slotFor(String base64) {
+        return slots.computeIfAbsent(base64, k -> nextSlot.getAndIncrement());
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        // Cipher у каждого потока свой, слоты розданы в init
+        return true;
+    }
+
+    @Override
+    public boolean preservesFrames() {
+        // ldc заменяется линейным кодом без ветвлений, стек на границах не меняется
+        return true;
+    }
+
+    private void loadSlots() throws IOException {
+        if (!Files.exists(slotsFile)) return;
+        for (String line : Files.readAllLines(slotsFile, StandardCharsets.UTF_8)) {
+            int sp = line.indexOf(' ');
+            if (sp <= 0) continue;
+            persistedSlots.put(line.substring(sp + 1), Integer.parseInt(line.substring(0, sp)));
+        }
+    }
+
+    /** Самая короткая инструкция для int-константы */
+    static AbstractInsnNode pushInt(int value) {
+        if (value >= -1 && value <= 5) return new InsnNode(Opcodes.ICONST_0 + value);
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) return new IntInsnNode(Opcodes.BIPUSH, value);
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) return new IntInsnNode(Opcodes.SIPUSH, value);
+        return new LdcInsnNode(value);
+    }
+
+    @Override
+    public String cacheFingerprint() {
+        // сам ключ и так лежит в выходном JAR, но в ключ кэша кладём только его хэш
+        try {
+            byte[] h = MessageDigest.getInstance("SHA-256").digest(aesKey.getEncoded());
+            return mode.name() + ";" + HexFormat.of().formatHex(h, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SecretKey generateKey() throws NoSuchAlgorithmException {
+        KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+        keyGen.init(128);
+        return keyGen.generateKey();
+    }
+
+    /** 128-битный ключ из генератора прогона (--seed или seed из кэша) */
+    private static SecretKey seededKey(SplittableRandom random) {
+        byte[] raw = new byte[16];
+        for (int i = 0; i < raw.length; i += 8) {
+            long v = random.nextLong();
+            for (int j = 0; j < 8; j++) raw[i + j] = (byte) (v >>> (8 * j));
+        }
+        return new SecretKeySpec(raw, "AES");
     }
 
     /**
@@ -94,8 +447,15 @@ public class StringEncryptorTransformer implements ITransformer {
             }
             ClassReader cr = new ClassReader(template);
             ClassNode cn = new ClassNode();
-            cr.accept(cn, 0);
+            // развёрнутые кадры, как у классов JAR'а: их пишут без пересчёта
+            cr.accept(cn, ClassReader.EXPAND_FRAMES);
+            // дешифратор вызывают классы любой версии: он должен грузиться на JVM от 8
+            if ((cn.version & 0xFFFF) > Opcodes.V1_8) {
+                throw new IllegalStateException("Шаблон StringDecryptorTemplate.class собран под class file "
+                        + (cn.version & 0xFFFF) + ", нужен не выше " + Opcodes.V1_8 + " (compileTemplates)");
+            }
             patchDecryptor(cn);
+            decryptorNode = cn;
             return cn;
         }
     }
@@ -127,6 +487,4 @@ public class StringEncryptorTransformer implements ITransformer {
     public String getBase64Key() {
         return base64Key;
     }
-
-    public Cipher getEncryptCipher() { return encryptCipher; }
 }
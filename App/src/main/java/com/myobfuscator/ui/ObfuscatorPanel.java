@@ -20,6 +20,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -30,22 +34,40 @@ public class ObfuscatorPanel extends JPanel {
             new JTextField("app/test-src/test-jars/CFTest-obfus.jar",30);
     private final JCheckBox binderCB = new JCheckBox("Bind to PC");
     private final JCheckBox renamerCB = new JCheckBox("Rename");
+    private final JCheckBox membersCB = new JCheckBox("Rename members", true);
     private final JCheckBox stringsCB = new JCheckBox("Encrypt Strings");
+    private final JComboBox<StringEncryptorTransformer.Mode> stringModeBox =
+            new JComboBox<>(StringEncryptorTransformer.Mode.values());
     private final JCheckBox cfCB      = new JCheckBox("Control-Flow");
     private final JCheckBox antiCB    = new JCheckBox("Anti-Debug");
     private final JCheckBox passwordCB    = new JCheckBox("Password");
+    private final JCheckBox streamingCB   = new JCheckBox("Low memory");
+    private final JTextField librariesField = new JTextField(30);
+    private final JTextField profileField = new JTextField(30);
+    private final JTextField seedField = new JTextField(12);
     private final JButton runButton   = new JButton("Запустить");
+    private final JButton cancelButton = new JButton("Отмена");
     private final JButton disasmButton = new JButton("Disassemble JAR");
+    private final JProgressBar progressBar = new JProgressBar(0, 1000);
+    private final JLabel progressLabel = new JLabel(" ");
+    /** Текущий прогон (только из EDT); null — ничего не запущено */
+    private ObfuscatorCore running;
     private final JLabel deadLabel    = new JLabel("Dead branches:");
     private final JSpinner deadSpinner = new JSpinner(new SpinnerNumberModel(2, 0, 20, 1));
+    private final JLabel recheckLabel = new JLabel("Re-check, s:");
+    private final JSpinner recheckSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 3600, 1));
+    private final JSpinner threadsSpinner = new JSpinner(new SpinnerNumberModel(
+            Runtime.getRuntime().availableProcessors(), 1, 256, 1));
 
     public ObfuscatorPanel() {
-        setPreferredSize(new Dimension(700, 200));
+        setPreferredSize(new Dimension(700, 300));
         add(new JLabel("Input JAR:"));  add(inputField);
         add(new JLabel("Output JAR:")); add(outputField);
         add(renamerCB);
+        add(membersCB);
         add(binderCB);
         add(stringsCB);
+        add(stringModeBox);
         add(cfCB);
         add(antiCB);
         add(passwordCB);
@@ -54,9 +76,51 @@ public class ObfuscatorPanel extends JPanel {
         deadSpinner.setVisible(false);
         add(deadLabel);
         add(deadSpinner);
+        recheckLabel.setVisible(false);
+        recheckSpinner.setVisible(false);
+        recheckSpinner.setToolTipText("0 — проверка один раз при запуске");
+        add(recheckLabel);
+        add(recheckSpinner);
+        add(new JLabel("Threads:"));
+        add(threadsSpinner);
+        add(streamingCB);
+        add(new JLabel("Libraries:"));
+        add(librariesField);
+        librariesField.setToolTipText("JAR'ы зависимостей через " + File.pathSeparator);
+        add(new JLabel("Seed:"));
+        add(seedField);
+        seedField.setToolTipText("Пусто — случайный; с тем же seed результат повторяется");
+        add(new JLabel("Profile:"));
+        add(profileField);
+        profileField.setToolTipText("CSV или .jfr: горячие методы без Anti-Debug, Control-Flow — в пределах порогов инлайнинга");
 
         add(runButton);
+        add(cancelButton);
         add(disasmButton);
+        add(progressBar);
+        add(progressLabel);
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            if (running == null) return;
+            running.cancel();
+            cancelButton.setEnabled(false);
+            progressLabel.setText("Отмена…");
+        });
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(300, progressBar.getPreferredSize().height));
+
+        stringModeBox.setEnabled(false);
+        stringsCB.addItemListener(e -> stringModeBox.setEnabled(stringsCB.isSelected()));
+        membersCB.setEnabled(false);
+        renamerCB.addItemListener(e -> membersCB.setEnabled(renamerCB.isSelected()));
+
+        antiCB.addItemListener(e -> {
+            boolean enabled = antiCB.isSelected();
+            recheckLabel.setVisible(enabled);
+            recheckSpinner.setVisible(enabled);
+            revalidate();
+            repaint();
+        });
 
         cfCB.addItemListener(e -> {
             boolean enabled = cfCB.isSelected();
@@ -75,9 +139,11 @@ public class ObfuscatorPanel extends JPanel {
                 var transformers = new java.util.ArrayList<ITransformer>();
                 if (binderCB.isSelected()) transformers.add(new BindingTransformer());
                 if (renamerCB.isSelected()) transformers.add(new RenamerTransformer());
-                if (stringsCB.isSelected())  transformers.add(new StringEncryptorTransformer());
+                if (stringsCB.isSelected())  transformers.add(new StringEncryptorTransformer(
+                        (StringEncryptorTransformer.Mode) stringModeBox.getSelectedItem()));
                 if (cfCB.isSelected())       transformers.add(new ControlFlowTransformer());
-                if (antiCB.isSelected())     transformers.add(new AntiDebugTransformer());
+                if (antiCB.isSelected())     transformers.add(new AntiDebugTransformer(
+                        (Integer) recheckSpinner.getValue() * 1000L));
                 if (passwordCB.isSelected())     transformers.add(new PasswordTransformer());
 
                 int deadCount = cfCB.isSelected()
@@ -87,37 +153,81 @@ public class ObfuscatorPanel extends JPanel {
                 ObfuscationContext ctx = new ObfuscationContext(
                         input, output, transformers, deadCount
                 );
+                ctx.setParallelism((Integer) threadsSpinner.getValue());
+                ctx.setStreaming(streamingCB.isSelected());
+                ctx.setRenameMembers(membersCB.isSelected());
+                var libraries = new ArrayList<Path>();
+                for (String lib : librariesField.getText().split(File.pathSeparator)) {
+                    if (!lib.isBlank()) libraries.add(Paths.get(lib.trim()));
+                }
+                ctx.setLibraries(libraries);
+                if (!seedField.getText().isBlank()) {
+                    try {
+                        ctx.setSeed(Long.parseLong(seedField.getText().trim()));
+                    } catch (NumberFormatException ex) {
+                        JOptionPane.showMessageDialog(ObfuscatorPanel.this,
+                                "Seed должен быть целым числом", "Ошибка", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                }
 
-                // Запуск в фоне, чтобы не блокировать GUI
-                new SwingWorker<Void, Void>() {
+                // Запуск в фоне, чтобы не блокировать GUI; ход — в progressBar, отмена — cancelButton
+                ObfuscatorCore core = new ObfuscatorCore(ctx);
+                SwingWorker<Void, ProgressListener.Progress> worker = new SwingWorker<>() {
                     @Override
-                    protected Void doInBackground() {
-                        try {
-                            System.out.println("→ Input JAR = " + input.toAbsolutePath());
-                            System.out.println("→ Exists?   = " + Files.exists(input));
-                            new ObfuscatorCore(ctx).run();
-                        } catch (Exception ex) {
-                            ex.printStackTrace();  // выведет стек-трейс в консоль
-                            SwingUtilities.invokeLater(() ->
-                                    JOptionPane.showMessageDialog(
-                                            ObfuscatorPanel.this,
-                                            "Ошибка: " + ex.getMessage(),
-                                            "Ошибка",
-                                            JOptionPane.ERROR_MESSAGE
-                                    ));
+                    protected Void doInBackground() throws Exception {
+                        System.out.println("→ Input JAR = " + input.toAbsolutePath());
+                        System.out.println("→ Exists?   = " + Files.exists(input));
+                        if (!profileField.getText().isBlank()) {
+                            ctx.setProfile(MethodProfile.load(Paths.get(profileField.getText().trim())));
                         }
+                        ctx.setProgressListener(this::publish);
+                        core.run();
                         return null;
                     }
+
+                    @Override
+                    protected void process(List<ProgressListener.Progress> chunks) {
+                        // publish() склеивает снимки — показываем последний
+                        showProgress(chunks.get(chunks.size() - 1));
+                    }
+
                     @Override
                     protected void done() {
-                        JOptionPane.showMessageDialog(
-                                ObfuscatorPanel.this,
-                                "Обфускация завершена: " + output,
-                                "Готово",
-                                JOptionPane.INFORMATION_MESSAGE
-                        );
+                        running = null;
+                        runButton.setEnabled(true);
+                        cancelButton.setEnabled(false);
+                        try {
+                            get();
+                            JOptionPane.showMessageDialog(
+                                    ObfuscatorPanel.this,
+                                    "Обфускация завершена: " + output,
+                                    "Готово",
+                                    JOptionPane.INFORMATION_MESSAGE
+                            );
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        } catch (ExecutionException ex) {
+                            if (ex.getCause() instanceof CancellationException) {
+                                progressLabel.setText("Отменено, " + output + " не изменён");
+                                return;
+                            }
+                            ex.getCause().printStackTrace();  // выведет стек-трейс в консоль
+                            JOptionPane.showMessageDialog(
+                                    ObfuscatorPanel.this,
+                                    "Ошибка: " + ex.getCause().getMessage(),
+                                    "Ошибка",
+                                    JOptionPane.ERROR_MESSAGE
+                            );
+                        }
                     }
-                }.execute();
+                };
+                running = core;
+                runButton.setEnabled(false);
+                cancelButton.setEnabled(true);
+                progressBar.setValue(0);
+                progressLabel.setText(" ");
+                worker.execute();
             }
         });
 
@@ -185,5 +295,11 @@ public class ObfuscatorPanel extends JPanel {
             }
         });
     }
-}
 
+    private void showProgress(ProgressListener.Progress p) {
+        progressBar.setValue((int) Math.round(p.fraction() * progressBar.getMaximum()));
+        progressLabel.setText(String.format(Locale.ROOT, "%d/%d/%d из %d, %.0f кл/с",
+                p.read(), p.transformed(), p.written(), p.total(), p.classesPerSecond()));
+        progressLabel.setToolTipText("прочитано / трансформировано / записано");
+    }
+}
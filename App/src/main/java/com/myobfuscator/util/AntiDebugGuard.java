@@ -0,0 +1,43 @@
+package com.myobfuscator.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Шаблон проверки на отладчик, которую AntiDebugTransformer кладёт в выходной JAR.
+ * Флаги JVM разбираются один раз при загрузке класса (и, если задан интервал, фоновым
+ * потоком), а инструментированные методы только читают готовый boolean.
+ */
+public final class AntiDebugGuard {
+    // Период повторной проверки в мс (0 — только при загрузке); подставляется трансформером
+    private static final long RECHECK_MILLIS = Long.parseLong("{{RECHECK_MILLIS}}");
+    /** Вердикт на момент загрузки класса: static final, JIT сворачивает проверку в константу */
+    public static final boolean DEBUGGED = detect();
+    /** Вердикт с учётом повторных проверок — для режима с интервалом */
+    public static volatile boolean debugged = DEBUGGED;
+
+    static {
+        if (RECHECK_MILLIS > 0 && !DEBUGGED) {
+            Thread watcher = new Thread(AntiDebugGuard::recheck);
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    private AntiDebugGuard() {}
+
+    private static boolean detect() {
+        return ManagementFactory.getRuntimeMXBean().getInputArguments().toString()
+                .contains("-agentlib:jdwp");
+    }
+
+    private static void recheck() {
+        while (!debugged) {
+            try {
+                Thread.sleep(RECHECK_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            debugged = detect();
+        }
+    }
+}
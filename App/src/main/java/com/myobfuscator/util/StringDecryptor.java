@@ -5,7 +5,15 @@ import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.SecretKeySpec;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
@@ -15,12 +23,80 @@ public class StringDecryptor {
     private static final String BASE64_KEY = "{{BASE64_KEY}}";
     private static final byte[] KEY_BYTES = Base64.getDecoder().decode("{{BASE64_KEY}}");
     private static final SecretKeySpec KEY = new SecretKeySpec(KEY_BYTES, "AES");
+    // Уже расшифрованные литералы по номеру слота; размер подставляется после обфускации
+    private static final String[] CACHE = new String[Integer.parseInt("{{SLOT_COUNT}}")];
+    // Шифротексты всех различных литералов JAR'а подряд: [длина int][AES-блоки]...
+    private static final byte[] SHARED = Base64.getDecoder().decode("{{STRING_TABLE}}");
+    private static final int[] OFFSETS = offsets(SHARED, CACHE.length);
+
+    /**
+     * Литерал по номеру слота: расшифровывается при первом обращении, дальше берётся из CACHE.
+     * Гонка двух потоков безопасна: оба запишут одну и ту же неизменяемую строку.
+     */
+    public static String get(int slot) throws GeneralSecurityException {
+        String s = CACHE[slot];
+        if (s == null) {
+            int off = OFFSETS[slot];
+            int len = ((SHARED[off] & 0xFF) << 24) | ((SHARED[off + 1] & 0xFF) << 16)
+                    | ((SHARED[off + 2] & 0xFF) << 8) | (SHARED[off + 3] & 0xFF);
+            s = new String(decryptRaw(SHARED, off + 4, len), StandardCharsets.UTF_8);
+            CACHE[slot] = s;
+        }
+        return s;
+    }
+
+    private static int[] offsets(byte[] shared, int count) {
+        int[] offsets = new int[count];
+        int off = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = off;
+            int len = ((shared[off] & 0xFF) << 24) | ((shared[off + 1] & 0xFF) << 16)
+                    | ((shared[off + 2] & 0xFF) << 8) | (shared[off + 3] & 0xFF);
+            off += 4 + len;
+        }
+        return offsets;
+    }
+
+    /**
+     * Bootstrap для ConstantDynamic: имя константы — зашифрованный литерал в URL-safe Base64
+     * (обычный Base64 содержит '/', недопустимый в имени). Вызывается JVM один раз на константу.
+     */
+    public static String constant(MethodHandles.Lookup lookup, String name, Class<?> type) throws GeneralSecurityException {
+        return decryptBytes(Base64.getUrlDecoder().decode(name));
+    }
+
+    /** Bootstrap для invokedynamic — то же для классов старше Java 11, где нет ConstantDynamic */
+    public static CallSite callSite(MethodHandles.Lookup lookup, String name, MethodType type) throws GeneralSecurityException {
+        return new ConstantCallSite(MethodHandles.constant(String.class, constant(lookup, name, String.class)));
+    }
+
+    /** Таблица строк класса: все литералы зашифрованы одним блоком (count, затем writeUTF каждой) */
+    public static String[] table(String base64) throws GeneralSecurityException, IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                decryptRaw(Base64.getDecoder().decode(base64))));
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        return strings;
+    }
 
     public static String decryptBase64(String base64) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
-        byte[] data = Base64.getDecoder().decode(base64);
+        return decryptBytes(Base64.getDecoder().decode(base64));
+    }
+
+    private static String decryptBytes(byte[] data) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return new String(decryptRaw(data), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] decryptRaw(byte[] data) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return decryptRaw(data, 0, data.length);
+    }
+
+    private static byte[] decryptRaw(byte[] data, int off, int len) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
         // здесь ваш AES-дешифратор, как прежде:
         Cipher c = Cipher.getInstance("AES/ECB/PKCS5Padding");
         c.init(Cipher.DECRYPT_MODE, KEY);
-        return new String(c.doFinal(data), StandardCharsets.UTF_8);
+        return c.doFinal(data, off, len);
     }
 }
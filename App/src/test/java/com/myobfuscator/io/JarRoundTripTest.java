@@ -0,0 +1,267 @@
+package com.myobfuscator.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JarSource/JarSink против java.util.zip: чтение чужих ZIP'ов (stored, deflated,
+ * data descriptor, zip64) и запись, которую читают ZipFile и ZipInputStream.
+ */
+class JarRoundTripTest {
+    @TempDir
+    Path dir;
+
+    private static final byte[] TEXT = "hello, jar\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SMALL = {1, 2, 3, 4, 5};
+
+    @Test
+    void readsStoredAndDeflatedEntries() throws IOException {
+        Path zip = dir.resolve("in.jar");
+        writeWithZipOutputStream(zip);
+
+        try (JarSource src = JarSource.open(zip)) {
+            JarSource.Entry stored = src.getEntry("stored.bin");
+            JarSource.Entry deflated = src.getEntry("a/deflated.txt");
+            assertEquals(0, stored.getMethod());
+            assertEquals(8, deflated.getMethod());
+            assertArrayEquals(SMALL, src.read(stored));
+            assertArrayEquals(TEXT, src.read(deflated));
+            assertEquals(crc(TEXT), deflated.getCrc());
+            assertEquals(TEXT.length, deflated.getSize());
+            assertTrue(deflated.getCompressedSize() < TEXT.length);
+            assertTrue(src.getEntry("a/").isDirectory());
+        }
+    }
+
+    @Test
+    void readsEntriesWithDataDescriptor() throws IOException {
+        Path zip = dir.resolve("in.jar");
+        writeWithZipOutputStream(zip);
+
+        try (JarSource src = JarSource.open(zip)) {
+            // ZipOutputStream пишет deflated-записи с data descriptor: размеры только в central directory
+            JarSource.Entry e = src.getEntry("a/deflated.txt");
+            assertEquals(0x08, e.getFlags() & 0x08);
+            assertArrayEquals(TEXT, src.read(e));
+        }
+    }
+
+    @Test
+    void sinkOutputIsReadableByZipFileAndZipInputStream() throws IOException {
+        Path out = dir.resolve("out.jar");
+        Manifest mf = new Manifest();
+        mf.getMainAttributes().putValue("Manifest-Version", "1.0");
+        mf.getMainAttributes().putValue("Main-Class", "a.Main");
+        try (JarSink sink = new JarSink(out)) {
+            sink.putManifest(mf);
+            sink.put("a/", new byte[0]);
+            sink.put("a/deflated.txt", TEXT);
+            sink.put("empty.bin", new byte[0]);
+        }
+
+        try (ZipFile zf = new ZipFile(out.toFile())) {
+            assertArrayEquals(TEXT, zf.getInputStream(zf.getEntry("a/deflated.txt")).readAllBytes());
+            assertEquals(0, zf.getEntry("empty.bin").getSize());
+        }
+        Map<String, byte[]> streamed = readWithZipInputStream(out);
+        assertArrayEquals(TEXT, streamed.get("a/deflated.txt"));
+        assertEquals("META-INF/MANIFEST.MF", streamed.keySet().iterator().next());
+        try (JarSource src = JarSource.open(out)) {
+            assertEquals("a.Main", src.getManifest().getMainAttributes().getValue("Main-Class"));
+        }
+    }
+
+    @Test
+    void rawCopyKeepsCrcSizesAndTime() throws IOException {
+        Path in = dir.resolve("in.jar");
+        Path out = dir.resolve("out.jar");
+        writeWithZipOutputStream(in);
+
+        try (JarSource src = JarSource.open(in); JarSink sink = new JarSink(out)) {
+            for (JarSource.Entry e : src.entries()) sink.copyRaw(src, e);
+        }
+
+        try (JarSource src = JarSource.open(in); JarSource copy = JarSource.open(out)) {
+            assertEquals(src.entries().size(), copy.entries().size());
+            for (JarSource.Entry e : src.entries()) {
+                JarSource.Entry c = copy.getEntry(e.getName());
+                assertEquals(e.getCrc(), c.getCrc(), e.getName());
+                assertEquals(e.getSize(), c.getSize(), e.getName());
+                assertEquals(e.getCompressedSize(), c.getCompressedSize(), e.getName());
+                assertEquals(e.getMethod(), c.getMethod(), e.getName());
+                assertEquals(e.getDosTime(), c.getDosTime(), e.getName());
+                // размеры перенесены в локальный заголовок, descriptor больше не нужен
+                assertEquals(0, c.getFlags() & 0x08, e.getName());
+                assertArrayEquals(src.read(e), copy.read(c), e.getName());
+            }
+        }
+        // ZipInputStream читает по локальным заголовкам — проверяет их отдельно от central directory
+        Map<String, byte[]> streamed = readWithZipInputStream(out);
+        assertArrayEquals(TEXT, streamed.get("a/deflated.txt"));
+        assertArrayEquals(SMALL, streamed.get("stored.bin"));
+    }
+
+    @Test
+    void zip64EntryCountRoundTrip() throws IOException {
+        int count = 70_000;
+        Path foreign = dir.resolve("zos64.jar");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(foreign))) {
+            for (int i = 0; i < count; i++) {
+                zos.putNextEntry(new ZipEntry("e" + i));
+                zos.write(i & 0xFF);
+                zos.closeEntry();
+            }
+        }
+        try (JarSource src = JarSource.open(foreign)) {
+            assertEquals(count, src.entries().size());
+            assertArrayEquals(new byte[]{(byte) 0x6F}, src.read(src.getEntry("e69999")));
+        }
+
+        Path own = dir.resolve("sink64.jar");
+        try (JarSink sink = new JarSink(own)) {
+            for (int i = 0; i < count; i++) sink.put("e" + i, new byte[]{(byte) i});
+        }
+        try (ZipFile zf = new ZipFile(own.toFile())) {
+            assertEquals(count, zf.size());
+            assertEquals(0x6F, zf.getInputStream(zf.getEntry("e69999")).read());
+        }
+        try (JarSource src = JarSource.open(own)) {
+            assertEquals(count, src.entries().size());
+        }
+    }
+
+    @Test
+    void exactly65535EntriesWithoutZip64() throws IOException {
+        // 0xFFFF в EOCD без zip64 locator — обычный ZIP, а не повреждённый zip64
+        Path zip = dir.resolve("ffff.jar");
+        int count = 0xFFFF;
+        ByteArrayOutputStream local = new ByteArrayOutputStream();
+        ByteArrayOutputStream central = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            byte[] name = ("e" + i).getBytes(StandardCharsets.UTF_8);
+            int offset = local.size();
+            local.write(localHeader(name, 0, 0, 0));
+            central.write(centralHeader(name, 0, 0, 0, offset));
+        }
+        try (OutputStream os = Files.newOutputStream(zip)) {
+            local.writeTo(os);
+            central.writeTo(os);
+            os.write(endRecord(count, central.size(), local.size()));
+        }
+
+        try (JarSource src = JarSource.open(zip)) {
+            assertEquals(count, src.entries().size());
+            assertEquals("e65534", src.entries().get(count - 1).getName());
+        }
+    }
+
+    @Test
+    void readsEntriesBeyond2GB() throws IOException {
+        // Разреженный файл: stored-запись на 2,25 ГБ нулей, за ней маленькая запись
+        Path zip = dir.resolve("big.jar");
+        long padSize = 0x9000_0000L;
+        byte[] padName = "pad.bin".getBytes(StandardCharsets.UTF_8);
+        byte[] tailName = "tail.txt".getBytes(StandardCharsets.UTF_8);
+        int padCrc = 0;  // JarSource не проверяет CRC при чтении
+        try (FileChannel ch = FileChannel.open(zip, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(localHeader(padName, 0, padSize, padCrc)));
+            long tailOffset = 30 + padName.length + padSize;
+            ch.position(tailOffset);
+            ch.write(ByteBuffer.wrap(localHeader(tailName, SMALL.length, SMALL.length, crc(SMALL))));
+            ch.write(ByteBuffer.wrap(SMALL));
+            long cenOffset = ch.position();
+            byte[] c1 = centralHeader(padName, 0, padSize, padCrc, 0);
+            byte[] c2 = centralHeader(tailName, SMALL.length, SMALL.length, crc(SMALL), tailOffset);
+            ch.write(ByteBuffer.wrap(c1));
+            ch.write(ByteBuffer.wrap(c2));
+            ch.write(ByteBuffer.wrap(endRecord(2, c1.length + c2.length, cenOffset)));
+        }
+
+        try (JarSource src = JarSource.open(zip)) {
+            assertEquals(padSize, src.getEntry("pad.bin").getSize());
+            assertArrayEquals(SMALL, src.read(src.getEntry("tail.txt")));
+        }
+    }
+
+    // ---------- помощники ----------
+
+    private static void writeWithZipOutputStream(Path zip) throws IOException {
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+            zos.putNextEntry(new ZipEntry("a/"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("a/deflated.txt"));
+            zos.write(TEXT);
+            zos.closeEntry();
+            ZipEntry stored = new ZipEntry("stored.bin");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(SMALL.length);
+            stored.setCompressedSize(SMALL.length);
+            stored.setCrc(crc(SMALL) & 0xFFFFFFFFL);
+            zos.putNextEntry(stored);
+            zos.write(SMALL);
+            zos.closeEntry();
+        }
+    }
+
+    private static Map<String, byte[]> readWithZipInputStream(Path zip) throws IOException {
+        Map<String, byte[]> map = new LinkedHashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zip))) {
+            for (ZipEntry e; (e = zis.getNextEntry()) != null; ) {
+                map.put(e.getName(), zis.readAllBytes());
+            }
+        }
+        return map;
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] localHeader(byte[] name, long csize, long size, int crc) {
+        ByteBuffer b = ByteBuffer.allocate(30 + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(0x04034b50).putShort((short) 10).putShort((short) 0).putShort((short) 0)
+                .putInt(0).putInt(crc).putInt((int) csize).putInt((int) size)
+                .putShort((short) name.length).putShort((short) 0).put(name);
+        return b.array();
+    }
+
+    private static byte[] centralHeader(byte[] name, long csize, long size, int crc, long offset) {
+        ByteBuffer b = ByteBuffer.allocate(46 + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(0x02014b50).putShort((short) 10).putShort((short) 10).putShort((short) 0)
+                .putShort((short) 0).putInt(0).putInt(crc).putInt((int) csize).putInt((int) size)
+                .putShort((short) name.length).putShort((short) 0).putShort((short) 0)
+                .putShort((short) 0).putShort((short) 0).putInt(0).putInt((int) offset).put(name);
+        return b.array();
+    }
+
+    private static byte[] endRecord(int count, long cenSize, long cenOffset) {
+        ByteBuffer b = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(0x06054b50).putShort((short) 0).putShort((short) 0)
+                .putShort((short) count).putShort((short) count)
+                .putInt((int) cenSize).putInt((int) cenOffset).putShort((short) 0);
+        return b.array();
+    }
+}
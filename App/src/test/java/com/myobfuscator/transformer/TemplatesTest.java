@@ -0,0 +1,70 @@
+package com.myobfuscator.transformer;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Шаблоны /templates/*.class вставляются в чужие JAR'ы как есть, поэтому собраны под Java 8:
+ * класс новее целевой JVM падает у пользователя с UnsupportedClassVersionError.
+ */
+class TemplatesTest {
+    private static final String[] TEMPLATES = {
+            "StringDecryptorTemplate.class",
+            "AntiDebugGuard.class",
+            "SystemBindingUtil.class",
+            "PasswordUtil.class"
+    };
+
+    @Test
+    void templatesTargetJava8() throws IOException {
+        for (String name : TEMPLATES) {
+            try (InputStream in = TemplatesTest.class.getResourceAsStream("/templates/" + name)) {
+                assertNotNull(in, name);
+                int major = new ClassReader(in).readUnsignedShort(6);
+                assertTrue(major <= Opcodes.V1_8, name + ": class file version " + major);
+            }
+        }
+    }
+
+    @Test
+    void guardNodeTargetsJava8WithPatchedInterval() throws IOException {
+        ClassNode guard = new AntiDebugTransformer(5000).generateGuardNode();
+        assertTrue((guard.version & 0xFFFF) <= Opcodes.V1_8, "class file version " + guard.version);
+
+        boolean patched = false;
+        for (MethodNode mn : guard.methods) {
+            for (AbstractInsnNode insn : mn.instructions) {
+                if (insn instanceof LdcInsnNode ldc) {
+                    assertFalse("{{RECHECK_MILLIS}}".equals(ldc.cst));
+                    patched |= "5000".equals(ldc.cst);
+                }
+            }
+        }
+        assertTrue(patched);
+    }
+
+    @Test
+    void decryptorNodeServesCallSitesBeforeJava11() throws IOException {
+        // классы ниже v55 (без condy) получают invokedynamic на StringDecryptor.callSite
+        ClassNode decryptor = new StringEncryptorTransformer().generateDecryptorNode();
+        assertTrue((decryptor.version & 0xFFFF) <= Opcodes.V1_8, "class file version " + decryptor.version);
+
+        boolean callSite = false;
+        for (MethodNode mn : decryptor.methods) {
+            callSite |= "callSite".equals(mn.name)
+                    && (mn.access & Opcodes.ACC_STATIC) != 0
+                    && "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;".equals(mn.desc);
+        }
+        assertTrue(callSite);
+    }
+}
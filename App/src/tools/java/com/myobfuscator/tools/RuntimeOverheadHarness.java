@@ -0,0 +1,283 @@
+package com.myobfuscator.tools;
+
+import com.myobfuscator.cli.BatchRunner;
+import com.myobfuscator.cli.CliOptions;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Во что обфускация обходится самому приложению. Рабочий JAR (его Main-Class — нагрузка,
+ * main должен возвращаться, а не вызывать System.exit) обфусцируется каждой комбинацией
+ * трансформеров, и исходный и обфусцированные варианты замеряются в отдельных JVM:
+ *
+ * - startup: время `java -jar` целиком (медиана из --startup-runs запусков);
+ * - throughput: драйвер вызывает main в цикле, после прогрева считает вызовы в секунду;
+ *   ratio — отношение к исходному JAR'у;
+ * - JIT: отдельный прогон драйвера с -XX:+PrintCodeCache и -XX:+PrintInlining — занятый
+ *   скомпилированным кодом объём CodeCache и неудачные попытки инлайнинга методов
+ *   приложения (всего и из-за размера: "too big"/"too large").
+ *
+ * Комбинации задаются флагами CLI (--combo "--rename --cf=3"); по умолчанию — каждый
+ * трансформер ObfuscatorPanel по отдельности и все вместе. Binding и Password не
+ * замеряются: первый требует ожидаемого хеша машины, второй ничего не вставляет в код.
+ * Отчёт — JSON Lines или CSV в stdout, как у CLI.
+ */
+public final class RuntimeOverheadHarness {
+    private static final List<String> DEFAULT_COMBOS = List.of(
+            "--rename", "--strings", "--strings=condy", "--strings=table", "--cf", "--anti",
+            "--rename --strings --cf --anti");
+    private static final Pattern INLINE = Pattern.compile("@ \\d+\\s+(\\S+)::\\S+ \\(\\d+ bytes\\)\\s+(.+)$");
+    private static final Pattern CODE_HEAP = Pattern.compile(
+            "^(?:CodeHeap '(?:non-)?profiled nmethods'|CodeCache):.*?used=(\\d+)Kb");
+    private static final String RESULT = "RESULT ";
+
+    /** Результат одного варианта; original — исходный JAR */
+    public record Measurement(String combo, long startupMillis, double opsPerSec, long codeCacheKb,
+                               int inlineFailures, int inlineTooBig) { }
+
+    private final Path workload;
+    private final List<String> combos;
+    private long warmupMillis = 5_000;
+    private long measureMillis = 10_000;
+    private int startupRuns = 5;
+    private long seed = 1;
+
+    public RuntimeOverheadHarness(Path workload, List<String> combos) {
+        this.workload = workload;
+        this.combos = combos.isEmpty() ? DEFAULT_COMBOS : List.copyOf(combos);
+    }
+
+    public void setWarmupMillis(long warmupMillis) { this.warmupMillis = warmupMillis; }
+    public void setMeasureMillis(long measureMillis) { this.measureMillis = measureMillis; }
+    public void setStartupRuns(int startupRuns) { this.startupRuns = Math.max(1, startupRuns); }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public List<Measurement> run() throws Exception {
+        Path dir = Files.createTempDirectory("obf-overhead");
+        List<Measurement> results = new ArrayList<>();
+        try {
+            results.add(measure("original", workload));
+            for (int i = 0; i < combos.size(); i++) {
+                String combo = combos.get(i);
+                Path out = dir.resolve("variant" + i + ".jar");
+                obfuscate(combo, out);
+                results.add(measure(combo, out));
+                Files.delete(out);
+            }
+        } catch (Exception e) {
+            // после сбоя в каталоге остаётся вариант; ошибка уборки не должна заслонять исходную
+            try {
+                deleteTree(dir);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+        deleteTree(dir);
+        return results;
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    /** Обфускация тем же путём, что и CLI, с фиксированным seed — варианты воспроизводимы */
+    private void obfuscate(String combo, Path out) throws Exception {
+        List<String> args = new ArrayList<>(Arrays.asList(combo.trim().split("\\s+")));
+        args.add("--seed");
+        args.add(Long.toString(seed));
+        args.add(workload + "=" + out);
+        CliOptions options = CliOptions.parse(args.toArray(new String[0]));
+        for (BatchRunner.JobResult r : new BatchRunner(options).run()) {
+            if (r.error() != null) throw new IllegalStateException("obfuscation failed for " + combo + ": " + r.error());
+        }
+    }
+
+    private Measurement measure(String combo, Path jar) throws Exception {
+        System.err.println("[Overhead] " + combo);
+        String mainClass;
+        try (JarFile jf = new JarFile(jar.toFile())) {
+            mainClass = jf.getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+        }
+        if (mainClass == null) throw new IllegalStateException("no Main-Class in " + jar);
+
+        // startup: JVM целиком, вывод нагрузки отбрасывается
+        long[] startups = new long[startupRuns];
+        for (int i = 0; i < startupRuns; i++) {
+            long start = System.nanoTime();
+            exec(List.of(java(), "-jar", jar.toString()), null);
+            startups[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(startups);
+
+        // throughput: без диагностических флагов, чтобы их вывод не искажал замер
+        double[] ops = new double[1];
+        exec(driver(jar, mainClass, List.of()), line -> {
+            if (line.startsWith(RESULT)) ops[0] = Double.parseDouble(line.substring(RESULT.length()));
+        });
+
+        // JIT: размер скомпилированного кода и отказы инлайнинга методов приложения
+        long[] codeKb = new long[1];
+        int[] failures = new int[2];
+        exec(driver(jar, mainClass, List.of("-XX:+UnlockDiagnosticVMOptions",
+                "-XX:+PrintCodeCache", "-XX:+PrintInlining")), line -> {
+            Matcher heap = CODE_HEAP.matcher(line.trim());
+            if (heap.find()) {
+                codeKb[0] += Long.parseLong(heap.group(1));
+                return;
+            }
+            Matcher m = INLINE.matcher(line);
+            if (!m.find() || isJdk(m.group(1))) return;
+            String reason = m.group(2).trim();
+            if (reason.startsWith("inline") || reason.startsWith("intrinsic")
+                    || reason.startsWith("accessor") || reason.startsWith("force inline")) return;
+            failures[0]++;
+            if (reason.contains("too big") || reason.contains("too large") || reason.contains("big method")) {
+                failures[1]++;
+            }
+        });
+
+        return new Measurement(combo, startups[startups.length / 2], ops[0], codeKb[0], failures[0], failures[1]);
+    }
+
+    private static boolean isJdk(String owner) {
+        return owner.startsWith("java") || owner.startsWith("jdk") || owner.startsWith("sun")
+                || owner.startsWith("com.sun") || owner.startsWith("com/sun");
+    }
+
+    private List<String> driver(Path jar, String mainClass, List<String> jvmFlags) throws Exception {
+        // JAR нагрузки — первым: его StringDecryptor/AntiDebugGuard не должны перекрываться шаблонами обфускатора
+        String self = Paths.get(RuntimeOverheadHarness.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .toString();
+        List<String> cmd = new ArrayList<>();
+        cmd.add(java());
+        cmd.addAll(jvmFlags);
+        cmd.addAll(List.of("-cp", jar + File.pathSeparator + self,
+                RuntimeOverheadHarness.class.getName(), "--drive", mainClass,
+                Long.toString(warmupMillis), Long.toString(measureMillis)));
+        return cmd;
+    }
+
+    private static String java() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private interface LineHandler {
+        void accept(String line);
+    }
+
+    private static void exec(List<String> cmd, LineHandler handler) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(cmd).redirectErrorStream(true);
+        if (handler == null) pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Process p = pb.start();
+        if (handler != null) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line; (line = in.readLine()) != null; ) handler.accept(line);
+            }
+        }
+        int code = p.waitFor();
+        if (code != 0) throw new IllegalStateException("exit code " + code + ": " + String.join(" ", cmd));
+    }
+
+    /**
+     * Драйвер в дочерней JVM: main нагрузки в цикле, warmup мс прогрева, затем measure мс замера.
+     * Вывод нагрузки глушится; результат — строка "RESULT вызовов_в_секунду" в исходный stdout.
+     */
+    private static void drive(String mainClass, long warmup, long measure) throws Exception {
+        Method main = Class.forName(mainClass).getMethod("main", String[].class);
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long end = System.nanoTime() + warmup * 1_000_000;
+        while (System.nanoTime() < end) main.invoke(null, (Object) new String[0]);
+
+        long ops = 0;
+        long start = System.nanoTime();
+        end = start + measure * 1_000_000;
+        long now;
+        do {
+            main.invoke(null, (Object) new String[0]);
+            ops++;
+        } while ((now = System.nanoTime()) < end);
+        System.setOut(stdout);
+        stdout.println(RESULT + ops * 1e9 / (now - start));
+    }
+
+    private static void report(List<Measurement> results, boolean csv, PrintStream out) {
+        double base = results.get(0).opsPerSec();
+        if (csv) out.println("combo,startup_ms,ops_per_sec,throughput_ratio,code_cache_kb,inline_failures,inline_too_big");
+        for (Measurement m : results) {
+            double ratio = base > 0 ? m.opsPerSec() / base : 0;
+            if (csv) {
+                out.printf(Locale.ROOT, "\"%s\",%d,%.2f,%.4f,%d,%d,%d%n", m.combo(), m.startupMillis(),
+                        m.opsPerSec(), ratio, m.codeCacheKb(), m.inlineFailures(), m.inlineTooBig());
+            } else {
+                out.printf(Locale.ROOT, "{\"combo\":\"%s\",\"startupMillis\":%d,\"opsPerSec\":%.2f,"
+                                + "\"throughputRatio\":%.4f,\"codeCacheKb\":%d,\"inlineFailures\":%d,\"inlineTooBig\":%d}%n",
+                        m.combo(), m.startupMillis(), m.opsPerSec(), ratio, m.codeCacheKb(),
+                        m.inlineFailures(), m.inlineTooBig());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("--drive")) {
+            drive(args[1], Long.parseLong(args[2]), Long.parseLong(args[3]));
+            return;
+        }
+        if (args.length == 0 || args[0].startsWith("-")) {
+            System.err.println("usage: RuntimeOverheadHarness workload.jar [--combo \"--rename --cf\"]..."
+                    + " [--warmup MS] [--measure MS] [--startup-runs N] [--seed N] [--format json|csv]");
+            System.exit(2);
+        }
+        List<String> combos = new ArrayList<>();
+        long warmup = -1;
+        long measure = -1;
+        int startupRuns = -1;
+        Long seed = null;
+        boolean csv = false;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--combo" -> combos.add(v);
+                case "--warmup" -> warmup = Long.parseLong(v);
+                case "--measure" -> measure = Long.parseLong(v);
+                case "--startup-runs" -> startupRuns = Integer.parseInt(v);
+                case "--seed" -> seed = Long.parseLong(v);
+                case "--format" -> csv = v.equals("csv");
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        RuntimeOverheadHarness harness = new RuntimeOverheadHarness(Paths.get(args[0]), combos);
+        if (warmup >= 0) harness.setWarmupMillis(warmup);
+        if (measure > 0) harness.setMeasureMillis(measure);
+        if (startupRuns > 0) harness.setStartupRuns(startupRuns);
+        if (seed != null) harness.setSeed(seed);
+
+        // логи обфускатора — в stderr, в stdout только отчёт
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        report(harness.run(), csv, stdout);
+    }
+}
@@ -0,0 +1,467 @@
+package com.myobfuscator.tools;
+
+import org.objectweb.asm.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Генератор синтетических входных JAR'ов для нагрузочных прогонов, бенчмарков и
+ * проверки потребления памяти. Классы похожи на прикладные: цепочки наследования от
+ * generic-базы TestGen&lt;T extends Serializable&gt;, аннотации, вложенные классы, лямбды
+ * (invokedynamic), методы с циклами и строковыми литералами.
+ *
+ * Результат детерминирован: одни и те же параметры и seed дают побайтно тот же JAR.
+ * Main-Class (gen.Main) прогоняет первые классы и печатает одно число — по нему
+ * удобно сравнивать исходный и обфусцированный JAR.
+ *
+ * java -cp obfuscator.jar com.myobfuscator.tools.SyntheticJarGenerator out.jar --classes 10000
+ */
+public final class SyntheticJarGenerator {
+    private static final String PKG = "gen/";
+    private static final String BASE = PKG + "TestGen";
+    private static final String MARKER = PKG + "Marker";
+    private static final String MAIN = PKG + "Main";
+    private static final String OPERATOR = "java/util/function/IntUnaryOperator";
+    /** Фиксированное время записей: время генерации не должно попадать в JAR */
+    private static final long ENTRY_TIME = 315_532_800_000L + 86_400_000L * 31;  // 1980-02-01
+    /** Повторяющиеся литералы: в реальных приложениях строки во многом общие */
+    private static final String[] COMMON = {
+            "id", "name", "value", "error", "null", "true", "false", "count",
+            "Invalid argument: ", "Not found", "user", "config", "timeout", "debug", "UTF-8", "%s=%s"
+    };
+    /** Сколько классов вызывает gen.Main */
+    private static final int MAIN_CALLS = 64;
+
+    private final int classes;
+    private int methods = 4;
+    private int methodSize = 8;
+    private double literalDensity = 0.3;
+    private int depth = 4;
+    private int innerEvery = 4;
+    private int lambdaEvery = 2;
+    private long seed = 1;
+
+    public SyntheticJarGenerator(int classes) {
+        if (classes < 1) throw new IllegalArgumentException("classes must be > 0");
+        this.classes = classes;
+    }
+
+    /** Методов m0..m{n-1} в каждом классе */
+    public void setMethods(int methods) { this.methods = Math.max(1, methods); }
+
+    /** Шагов в теле цикла каждого метода; размер байткода растёт линейно */
+    public void setMethodSize(int methodSize) { this.methodSize = Math.max(1, methodSize); }
+
+    /** Доля шагов со строковым литералом (0..1) */
+    public void setLiteralDensity(double literalDensity) {
+        this.literalDensity = Math.max(0, Math.min(1, literalDensity));
+    }
+
+    /** Глубина цепочек наследования под TestGen */
+    public void setDepth(int depth) { this.depth = Math.max(1, depth); }
+
+    /** Каждый n-й класс получает вложенный класс (0 — ни один) */
+    public void setInnerEvery(int innerEvery) { this.innerEvery = Math.max(0, innerEvery); }
+
+    /** Каждый n-й класс получает метод с лямбдой (0 — ни один) */
+    public void setLambdaEvery(int lambdaEvery) { this.lambdaEvery = Math.max(0, lambdaEvery); }
+
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public void write(Path jar) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, MAIN.replace('/', '.'));
+        Path parent = jar.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (OutputStream os = Files.newOutputStream(jar);
+             JarOutputStream out = new JarOutputStream(os)) {
+            // манифест — своей записью, чтобы у неё тоже было фиксированное время
+            put(out, "META-INF/MANIFEST.MF", manifestBytes(manifest));
+            put(out, MARKER + ".class", marker());
+            put(out, BASE + ".class", base());
+            for (int i = 0; i < classes; i++) {
+                SplittableRandom rnd = new SplittableRandom(seed + i * 0x9E3779B97F4A7C15L);
+                put(out, name(i) + ".class", generate(i, rnd));
+                if (hasInner(i)) put(out, inner(i) + ".class", innerClass(i));
+            }
+            put(out, MAIN + ".class", main());
+        }
+    }
+
+    private static byte[] manifestBytes(Manifest manifest) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        manifest.write(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static void put(JarOutputStream out, String name, byte[] bytes) throws IOException {
+        JarEntry entry = new JarEntry(name);
+        entry.setTime(ENTRY_TIME);
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    private static String name(int i) {
+        return PKG + "p" + (i / 100) + "/C" + i;
+    }
+
+    private static String inner(int i) {
+        return name(i) + "$Inner";
+    }
+
+    private boolean hasInner(int i) {
+        return innerEvery > 0 && i % innerEvery == 0;
+    }
+
+    private boolean hasLambda(int i) {
+        return lambdaEvery > 0 && i % lambdaEvery == 0;
+    }
+
+    private String superName(int i) {
+        return i % depth == 0 ? BASE : name(i - 1);
+    }
+
+    /** Кадры считает ASM; общий супертип в сгенерированном коде не нужен — там только int и this */
+    private static ClassWriter writer() {
+        return new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+    }
+
+    /** @interface Marker { int value(); } с RetentionPolicy.RUNTIME */
+    private static byte[] marker() {
+        ClassWriter cw = writer();
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_ANNOTATION | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+                MARKER, null, "java/lang/Object", new String[]{"java/lang/annotation/Annotation"});
+        AnnotationVisitor retention = cw.visitAnnotation("Ljava/lang/annotation/Retention;", true);
+        retention.visitEnum("value", "Ljava/lang/annotation/RetentionPolicy;", "RUNTIME");
+        retention.visitEnd();
+        cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "value", "()I", null, null).visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** class TestGen<T extends Serializable> { protected T value; T get(); int compute(int n) } */
+    private static byte[] base() {
+        ClassWriter cw = writer();
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, BASE,
+                "<T::Ljava/io/Serializable;>Ljava/lang/Object;", "java/lang/Object", null);
+        cw.visitField(Opcodes.ACC_PROTECTED, "value", "Ljava/io/Serializable;", "TT;", null).visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "(Ljava/io/Serializable;)V", "(TT;)V", null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, BASE, "value", "Ljava/io/Serializable;");
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "get", "()Ljava/io/Serializable;", "()TT;", null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, BASE, "value", "Ljava/io/Serializable;");
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "compute", "(I)I", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, BASE, "get", "()Ljava/io/Serializable;", false);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false);
+        mv.visitInsn(Opcodes.IADD);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private byte[] generate(int i, SplittableRandom rnd) {
+        String owner = name(i);
+        String superName = superName(i);
+        ClassWriter cw = writer();
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, owner,
+                superName.equals(BASE) ? "L" + BASE + "<Ljava/lang/String;>;" : null, superName, null);
+        AnnotationVisitor marker = cw.visitAnnotation("L" + MARKER + ";", true);
+        marker.visit("value", i);
+        marker.visitEnd();
+        if (hasInner(i)) {
+            cw.visitNestMember(inner(i));
+            cw.visitInnerClass(inner(i), owner, "Inner", Opcodes.ACC_STATIC);
+        }
+        if (hasLambda(i)) {
+            cw.visitInnerClass("java/lang/invoke/MethodHandles$Lookup", "java/lang/invoke/MethodHandles", "Lookup",
+                    Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL);
+        }
+        cw.visitField(Opcodes.ACC_PRIVATE, "count" + i, "I", null, null).visitEnd();
+
+        // конструктор: корень цепочки передаёт в TestGen строку
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        if (superName.equals(BASE)) {
+            mv.visitLdcInsn("root " + i);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, BASE, "<init>", "(Ljava/io/Serializable;)V", false);
+        } else {
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitIntInsn(Opcodes.SIPUSH, i & 0x7FFF);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, owner, "count" + i, "I");
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        for (int m = 0; m < methods; m++) {
+            loopMethod(cw, owner, "m" + m, i, m, rnd);
+        }
+
+        // compute переопределяет метод предка по всей цепочке
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "compute", "(I)I", null, null);
+        mv.visitAnnotation("L" + MARKER + ";", true).visitEnd();
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "compute", "(I)I", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, "m0", "(I)I", false);
+        mv.visitInsn(Opcodes.IADD);
+        if (hasInner(i)) {
+            mv.visitVarInsn(Opcodes.ILOAD, 1);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, inner(i), "twice", "(I)I", false);
+            mv.visitInsn(Opcodes.IADD);
+        }
+        if (hasLambda(i)) {
+            mv.visitVarInsn(Opcodes.ILOAD, 1);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, "viaLambda", "(I)I", false);
+            mv.visitInsn(Opcodes.IADD);
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, "describe", "()Ljava/lang/String;", false);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+        mv.visitInsn(Opcodes.IADD);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        describe(cw, owner, i, rnd);
+        if (hasLambda(i)) lambda(cw, owner, i);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** int name(int n): цикл из methodSize шагов; часть шагов берёт длину литерала */
+    private void loopMethod(ClassWriter cw, String owner, String name, int i, int m, SplittableRandom rnd) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, name, "(I)I", null, null);
+        mv.visitCode();
+        Label loop = new Label();
+        Label end = new Label();
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitVarInsn(Opcodes.ISTORE, 2);      // acc
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitVarInsn(Opcodes.ISTORE, 3);      // k
+        mv.visitLabel(loop);
+        mv.visitVarInsn(Opcodes.ILOAD, 3);
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+        for (int s = 0; s < methodSize; s++) {
+            mv.visitVarInsn(Opcodes.ILOAD, 2);
+            if (rnd.nextDouble() < literalDensity) {
+                mv.visitLdcInsn(literal(rnd, i, m, s));
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+                mv.visitInsn(Opcodes.IADD);
+            } else {
+                mv.visitIntInsn(Opcodes.BIPUSH, 31);
+                mv.visitInsn(Opcodes.IMUL);
+                mv.visitVarInsn(Opcodes.ILOAD, 3);
+                mv.visitInsn(rnd.nextBoolean() ? Opcodes.IADD : Opcodes.IXOR);
+            }
+            mv.visitVarInsn(Opcodes.ISTORE, 2);
+        }
+        mv.visitIincInsn(3, 1);
+        mv.visitJumpInsn(Opcodes.GOTO, loop);
+        mv.visitLabel(end);
+        mv.visitVarInsn(Opcodes.ILOAD, 2);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, owner, "count" + i, "I");
+        mv.visitInsn(Opcodes.IADD);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static String literal(SplittableRandom rnd, int i, int m, int s) {
+        return rnd.nextInt(3) == 0
+                ? COMMON[rnd.nextInt(COMMON.length)]
+                : "literal " + i + "." + m + "." + s;
+    }
+
+    /** String describe(): склейка литералов через StringBuilder, как в toString() */
+    private void describe(ClassWriter cw, String owner, int i, SplittableRandom rnd) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "describe", "()Ljava/lang/String;", null, null);
+        mv.visitCode();
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/StringBuilder");
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitLdcInsn("C" + i + "{");
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V", false);
+        int parts = 1 + (int) Math.round(methodSize * literalDensity);
+        for (int p = 0; p < parts; p++) {
+            mv.visitLdcInsn(literal(rnd, i, -1, p));
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+                    "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, owner, "count" + i, "I");
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+                "(I)Ljava/lang/StringBuilder;", false);
+        mv.visitLdcInsn("}");
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+                "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** static int viaLambda(int n) { IntUnaryOperator f = x -> x * 3 + n; return f.applyAsInt(i); } */
+    private static void lambda(ClassWriter cw, String owner, int i) {
+        String body = "lambda$viaLambda$0";
+        Handle metafactory = new Handle(Opcodes.H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+                        + "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)"
+                        + "Ljava/lang/invoke/CallSite;", false);
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "viaLambda", "(I)I", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ILOAD, 0);
+        mv.visitInvokeDynamicInsn("applyAsInt", "(I)L" + OPERATOR + ";", metafactory,
+                Type.getType("(I)I"),
+                new Handle(Opcodes.H_INVOKESTATIC, owner, body, "(II)I", false),
+                Type.getType("(I)I"));
+        mv.visitIntInsn(Opcodes.SIPUSH, i & 0x7FFF);
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, OPERATOR, "applyAsInt", "(I)I", true);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, body, "(II)I", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitInsn(Opcodes.ICONST_3);
+        mv.visitInsn(Opcodes.IMUL);
+        mv.visitVarInsn(Opcodes.ILOAD, 0);
+        mv.visitInsn(Opcodes.IADD);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** static class Inner { static int twice(int n) } — nest-mate внешнего класса */
+    private static byte[] innerClass(int i) {
+        ClassWriter cw = writer();
+        cw.visit(Opcodes.V17, Opcodes.ACC_SUPER, inner(i), null, "java/lang/Object", null);
+        cw.visitNestHost(name(i));
+        cw.visitInnerClass(inner(i), name(i), "Inner", Opcodes.ACC_STATIC);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_STATIC, "twice", "(I)I", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ILOAD, 0);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.ISHL);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * gen.Main: для первых MAIN_CALLS классов суммирует compute(7) и значение @Marker,
+     * затем печатает сумму
+     */
+    private byte[] main() {
+        ClassWriter cw = writer();
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, MAIN, null, "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main",
+                "([Ljava/lang/String;)V", null, null);
+        mv.visitCode();
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitVarInsn(Opcodes.ISTORE, 1);
+        for (int i = 0; i < Math.min(classes, MAIN_CALLS); i++) {
+            mv.visitVarInsn(Opcodes.ILOAD, 1);
+            mv.visitTypeInsn(Opcodes.NEW, name(i));
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, name(i), "<init>", "()V", false);
+            mv.visitIntInsn(Opcodes.BIPUSH, 7);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, name(i), "compute", "(I)I", false);
+            mv.visitInsn(Opcodes.IADD);
+            mv.visitLdcInsn(Type.getObjectType(name(i)));
+            mv.visitLdcInsn(Type.getObjectType(MARKER));
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Class", "getAnnotation",
+                    "(Ljava/lang/Class;)Ljava/lang/annotation/Annotation;", false);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, MARKER);
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, MARKER, "value", "()I", true);
+            mv.visitInsn(Opcodes.IADD);
+            mv.visitVarInsn(Opcodes.ISTORE, 1);
+        }
+        mv.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(I)V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args[0].startsWith("-")) {
+            System.err.println("usage: SyntheticJarGenerator out.jar [--classes N] [--methods N] [--method-size N]"
+                    + " [--literals 0..1] [--depth N] [--inner-every N] [--lambda-every N] [--seed N]");
+            System.exit(2);
+        }
+        int classes = 1000;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--classes")) classes = Integer.parseInt(args[i + 1]);
+        }
+        SyntheticJarGenerator gen = new SyntheticJarGenerator(classes);
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--classes" -> { }
+                case "--methods" -> gen.setMethods(Integer.parseInt(v));
+                case "--method-size" -> gen.setMethodSize(Integer.parseInt(v));
+                case "--literals" -> gen.setLiteralDensity(Double.parseDouble(v));
+                case "--depth" -> gen.setDepth(Integer.parseInt(v));
+                case "--inner-every" -> gen.setInnerEvery(Integer.parseInt(v));
+                case "--lambda-every" -> gen.setLambdaEvery(Integer.parseInt(v));
+                case "--seed" -> gen.setSeed(Long.parseLong(v));
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        Path out = Paths.get(args[0]);
+        gen.write(out);
+        System.out.println("Generated " + classes + " classes into " + out);
+    }
+}